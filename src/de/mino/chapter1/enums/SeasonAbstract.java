@@ -4,30 +4,35 @@ package de.mino.chapter1.enums;
  * You can use abstract methods in enums. This is basically like an abstract class with a bunch of
  * tiny subclasses implementing the abstract method.
  * If the enum declares an abstract method, each enum value must implement it.
+ *
+ * <p>Because every constant is its own class, a call like 'season.getHours()' in a loop over all
+ * seasons sees four classes and can't be inlined by the JIT compiler. {@link SeasonTable} shows the
+ * alternative with a field.
  */
-public enum SeasonAbstract {
+public enum SeasonAbstract implements SeasonHours {
   WINTER {
-    public void printHours() {
-      System.out.println("9am-3pm");
+    public String getHours() {
+      return "9am-3pm";
     }
   },
   SPRING {
-    public void printHours() {
-      System.out.println("9am-5pm");
+    public String getHours() {
+      return "9am-5pm";
     }
   },
   SUMMER {
-    public void printHours() {
-      System.out.println("9am-7pm");
+    public String getHours() {
+      return "9am-7pm";
     }
   },
   FALL {
-    public void printHours() {
-      System.out.println("9am-5pm");
+    public String getHours() {
+      return "9am-5pm";
     }
   };
 
-  public abstract void printHours();
+  // printHours() comes from the SeasonHours interface and prints getHours().
+  public abstract String getHours();
 }
 
 /** The same works with a default implementation. */
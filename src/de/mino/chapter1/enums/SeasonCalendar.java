@@ -0,0 +1,131 @@
+package de.mino.chapter1.enums;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.Year;
+
+/**
+ * Fast conversions to {@link Season}: from a date, from a timestamp and from a String.
+ *
+ * <p>The season of every day of the year is computed once and stored in a table. The index is
+ * (month - 1) * 31 + (day - 1), so every month gets 31 slots and February 29th needs no special
+ * case. The seasons start on the (northern, astronomical) dates March 20th, June 21st, September
+ * 22nd and December 21st.
+ *
+ * <p>For timestamps there is a second table: the Gregorian calendar repeats itself every 400 years
+ * (146097 days), so the season of every day of such a cycle is stored too. A timestamp then only
+ * needs a division to get its day and one array access, no calendar calculation.
+ */
+public final class SeasonCalendar {
+
+  private static final Season[] BY_DAY = new Season[12 * 31];
+  private static final Season[] SEASONS = Season.values();
+  // Longest possible length of every month, February in a leap year.
+  private static final int[] MONTH_LENGTHS = {31, 29, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+  private static final long MILLIS_PER_DAY = 24 * 60 * 60 * 1000;
+  private static final int DAYS_PER_400_YEARS = 146_097;
+  // Ordinal of the season for every day of a 400 year cycle, starting 1970-01-01. A byte each, so
+  // the table is 143 KB.
+  private static final byte[] BY_CYCLE_DAY = new byte[DAYS_PER_400_YEARS];
+
+  static {
+    for (int month = 1; month <= 12; month++) {
+      for (int day = 1; day <= 31; day++) {
+        BY_DAY[index(month, day)] = compute(month, day);
+      }
+    }
+    int epochDay = 0;
+    for (int year = 1970; year < 1970 + 400; year++) {
+      for (Month month : Month.values()) {
+        for (int day = 1; day <= month.length(Year.isLeap(year)); day++) {
+          BY_CYCLE_DAY[epochDay++] = (byte) BY_DAY[index(month.getValue(), day)].ordinal();
+        }
+      }
+    }
+  }
+
+  private SeasonCalendar() {}
+
+  // Only used to fill the table.
+  private static Season compute(int month, int day) {
+    int monthDay = month * 100 + day;
+    if (monthDay >= 1221 || monthDay < 320) {
+      return Season.WINTER;
+    } else if (monthDay < 621) {
+      return Season.SPRING;
+    } else if (monthDay < 922) {
+      return Season.SUMMER;
+    }
+    return Season.FALL;
+  }
+
+  private static int index(int month, int day) {
+    return (month - 1) * 31 + (day - 1);
+  }
+
+  /**
+   * @throws IllegalArgumentException if month isn't 1-12 or the month doesn't have that day
+   *     (February 29th is accepted)
+   */
+  public static Season seasonOf(int month, int dayOfMonth) {
+    if (month < 1 || month > 12 || dayOfMonth < 1 || dayOfMonth > MONTH_LENGTHS[month - 1]) {
+      throw new IllegalArgumentException("Invalid date: " + month + "/" + dayOfMonth);
+    }
+    return BY_DAY[index(month, dayOfMonth)];
+  }
+
+  public static Season seasonOf(LocalDate date) {
+    return BY_DAY[index(date.getMonthValue(), date.getDayOfMonth())];
+  }
+
+  /** The season of a timestamp (milliseconds since 1970-01-01, UTC). */
+  public static Season seasonOfEpochMilli(long epochMilli) {
+    return seasonOfEpochDay(Math.floorDiv(epochMilli, MILLIS_PER_DAY));
+  }
+
+  /** The season of a day since 1970-01-01. */
+  public static Season seasonOfEpochDay(long epochDay) {
+    return SEASONS[BY_CYCLE_DAY[Math.floorMod(epochDay, DAYS_PER_400_YEARS)]];
+  }
+
+  /**
+   * Like {@link Season#valueOf}, but ignores the case ("summer", "Summer") and returns null instead
+   * of throwing an exception for null or an unknown name. Doesn't create any objects.
+   */
+  public static Season parse(CharSequence name) {
+    if (name == null) {
+      return null;
+    }
+    for (Season season : SEASONS) {
+      if (equalsIgnoreCase(season.name(), name)) {
+        return season;
+      }
+    }
+    return null;
+  }
+
+  // The enum names are upper case ASCII, so it is enough to fold the input's ASCII letters.
+  private static boolean equalsIgnoreCase(String upperCase, CharSequence value) {
+    if (upperCase.length() != value.length()) {
+      return false;
+    }
+    for (int i = 0; i < upperCase.length(); i++) {
+      char c = value.charAt(i);
+      if (c >= 'a' && c <= 'z') {
+        c -= 'a' - 'A';
+      }
+      if (c != upperCase.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public static void main(String[] args) {
+    System.out.println(seasonOf(LocalDate.of(2020, 2, 29))); // WINTER
+    System.out.println(seasonOf(7, 14)); // SUMMER
+    System.out.println(seasonOfEpochMilli(0)); // WINTER (January 1st 1970)
+    System.out.println(parse("spring")); // SPRING
+    System.out.println(parse("Autumn")); // null
+  }
+}
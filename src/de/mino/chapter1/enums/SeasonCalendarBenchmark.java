@@ -0,0 +1,118 @@
+package de.mino.chapter1.enums;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Classifies and counts timestamps per season: with {@link SeasonCalendar} and {@link
+ * SeasonVisitorCounter} against java.time date arithmetic and an {@code EnumMap<Season, Long>}.
+ * Also compares {@link SeasonCalendar#parse} with {@code Season.valueOf(name.toUpperCase())}.
+ *
+ * <p>The timestamps (2000 to 2030) are generated on the fly with a linear congruential generator,
+ * 100 million of them wouldn't fit in memory.
+ *
+ * <p>Usage: {@code SeasonCalendarBenchmark [timestamps]}
+ */
+public class SeasonCalendarBenchmark {
+
+  private static final long FROM = LocalDate.of(2000, 1, 1).toEpochDay() * 86_400_000L;
+  private static final long RANGE = LocalDate.of(2030, 1, 1).toEpochDay() * 86_400_000L - FROM;
+
+  private static final String[] NAMES = {"summer", "WINTER", "Fall", "spring", "autumn", "Spring"};
+
+  public static void main(String[] args) {
+    long count = args.length > 0 ? Long.parseLong(args[0]) : 100_000_000L;
+
+    // The calculation without LocalDate must give the same season as with it.
+    for (long day = -1_000_000; day <= 1_000_000; day++) {
+      if (SeasonCalendar.seasonOfEpochDay(day)
+          != SeasonCalendar.seasonOf(LocalDate.ofEpochDay(day))) {
+        throw new IllegalStateException("Wrong season for day " + day);
+      }
+    }
+
+    for (int round = 0; round < 2; round++) {
+      // The first round is the warm-up.
+      boolean print = round == 1;
+      long start = System.nanoTime();
+      SeasonVisitorCounter counter = new SeasonVisitorCounter(1_000, 2_000, 3_000);
+      long seed = 42;
+      for (long i = 0; i < count; i++) {
+        seed = seed * 6364136223846793005L + 1442695040888963407L;
+        counter.recordEpochMilli(FROM + Long.remainderUnsigned(seed, RANGE));
+      }
+      long table = System.nanoTime() - start;
+
+      start = System.nanoTime();
+      Map<Season, Long> map = new EnumMap<>(Season.class);
+      seed = 42;
+      for (long i = 0; i < count; i++) {
+        seed = seed * 6364136223846793005L + 1442695040888963407L;
+        long timestamp = FROM + Long.remainderUnsigned(seed, RANGE);
+        LocalDate date = Instant.ofEpochMilli(timestamp).atZone(ZoneOffset.UTC).toLocalDate();
+        map.merge(seasonWithDateArithmetic(date), 1L, Long::sum);
+      }
+      long javaTime = System.nanoTime() - start;
+      if (!map.equals(counter.toEnumMap())) {
+        throw new IllegalStateException(map + " != " + counter);
+      }
+
+      int parses = 10_000_000;
+      start = System.nanoTime();
+      int found = 0;
+      for (int i = 0; i < parses; i++) {
+        found += SeasonCalendar.parse(NAMES[i % NAMES.length]) != null ? 1 : 0;
+      }
+      long parse = System.nanoTime() - start;
+      start = System.nanoTime();
+      int foundWithValueOf = 0;
+      for (int i = 0; i < parses; i++) {
+        try {
+          Season.valueOf(NAMES[i % NAMES.length].toUpperCase(Locale.ROOT));
+          foundWithValueOf++;
+        } catch (IllegalArgumentException e) {
+          // Not a season.
+        }
+      }
+      long valueOf = System.nanoTime() - start;
+      if (found != foundWithValueOf) {
+        throw new IllegalStateException("Different number of seasons parsed");
+      }
+
+      if (print) {
+        System.out.printf("%d timestamps%n", count);
+        System.out.printf(
+            "SeasonCalendar + SeasonVisitorCounter\t%d ms\t%.2f ns each%n",
+            table / 1_000_000, (double) table / count);
+        System.out.printf(
+            "java.time + EnumMap<Season, Long>\t%d ms\t%.2f ns each%n",
+            javaTime / 1_000_000, (double) javaTime / count);
+        System.out.printf("%d names%n", parses);
+        System.out.printf(
+            "SeasonCalendar.parse\t\t\t%d ms\t%.2f ns each%n",
+            parse / 1_000_000, (double) parse / parses);
+        System.out.printf(
+            "toUpperCase + valueOf\t\t\t%d ms\t%.2f ns each%n",
+            valueOf / 1_000_000, (double) valueOf / parses);
+        System.out.println(counter.getUtilization());
+      }
+    }
+  }
+
+  // What the table replaces: comparing the date with the start of each season.
+  private static Season seasonWithDateArithmetic(LocalDate date) {
+    int year = date.getYear();
+    if (date.isBefore(LocalDate.of(year, 3, 20)) || !date.isBefore(LocalDate.of(year, 12, 21))) {
+      return Season.WINTER;
+    } else if (date.isBefore(LocalDate.of(year, 6, 21))) {
+      return Season.SPRING;
+    } else if (date.isBefore(LocalDate.of(year, 9, 22))) {
+      return Season.SUMMER;
+    }
+    return Season.FALL;
+  }
+}
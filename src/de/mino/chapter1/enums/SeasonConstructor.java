@@ -10,13 +10,13 @@ public enum SeasonConstructor {
   FALL("Medium"),
   WINTER("Low");
 
-  String expectedVisitors;
+  // final: the constants are shared by the whole program, nobody should be able to change them.
+  final String expectedVisitors;
 
   // The constructor can only be private or package private because it can only be called from
   // within the enum. Protected or public would not work.
+  // It doesn't print anything, other classes (e.g. SeasonVisitorCounter) use this enum too.
   private SeasonConstructor(String expectedVisitors) {
-    System.out.println(
-        "The enum constructor gets called only on the first time. " + expectedVisitors);
     this.expectedVisitors = expectedVisitors;
   }
 
@@ -34,6 +34,10 @@ class Starter2 {
     System.out.println("--- Enum constructor behavior ---");
     SeasonConstructor firstCall =
         SeasonConstructor.SUMMER; // calls the constructor for all enum values
+    for (SeasonConstructor season : SeasonConstructor.values()) {
+      System.out.println(
+          "The enum constructor gets called only on the first time. " + season.expectedVisitors);
+    }
     SeasonConstructor secondCall =
         SeasonConstructor
             .SUMMER; // Doesn't call the constructor - just returns the already constructed enum
@@ -0,0 +1,14 @@
+package de.mino.chapter1.enums;
+
+/**
+ * Opening hours of the zoo per season. Implemented by {@link SeasonAbstract}, where every constant
+ * has its own method body, and by {@link SeasonTable}, where the hours are a field.
+ */
+public interface SeasonHours {
+
+  String getHours();
+
+  default void printHours() {
+    System.out.println(getHours());
+  }
+}
@@ -0,0 +1,122 @@
+package de.mino.chapter1.enums;
+
+import java.util.Random;
+
+/**
+ * Compares four ways to get the opening hours of a random sequence of seasons:
+ *
+ * <ul>
+ *   <li>constant specific bodies ({@link SeasonAbstract}): the call site sees four classes
+ *   <li>a switch over {@link Season}
+ *   <li>a final field ({@link SeasonTable}): one class, the call is inlined
+ *   <li>an array indexed by {@link Season#ordinal()}
+ * </ul>
+ *
+ * <p>Each way has its own loop in its own method, so the call sites don't share a type profile.
+ *
+ * <p>Usage: {@code SeasonHoursBenchmark [calls in millions]}
+ */
+public class SeasonHoursBenchmark {
+
+  private static final String[] HOURS_BY_ORDINAL = new String[Season.values().length];
+
+  static {
+    for (Season season : Season.values()) {
+      HOURS_BY_ORDINAL[season.ordinal()] = SeasonTable.valueOf(season.name()).getHours();
+    }
+  }
+
+  public static void main(String[] args) {
+    long calls = (args.length > 0 ? Long.parseLong(args[0]) : 200) * 1_000_000;
+    int size = 4096;
+    SeasonAbstract[] abstracts = new SeasonAbstract[size];
+    Season[] seasons = new Season[size];
+    SeasonTable[] tables = new SeasonTable[size];
+    Random random = new Random(42);
+    for (int i = 0; i < size; i++) {
+      int ordinal = random.nextInt(4);
+      seasons[i] = Season.values()[ordinal];
+      abstracts[i] = SeasonAbstract.valueOf(seasons[i].name());
+      tables[i] = SeasonTable.valueOf(seasons[i].name());
+    }
+    int repeats = (int) (calls / size);
+
+    for (int round = 0; round < 5; round++) {
+      // The first rounds are the warm-up, only the last one is printed.
+      long start = System.nanoTime();
+      long constantBodies = constantBodies(abstracts, repeats);
+      long afterConstantBodies = System.nanoTime();
+      long switches = switches(seasons, repeats);
+      long afterSwitch = System.nanoTime();
+      long fields = fields(tables, repeats);
+      long afterFields = System.nanoTime();
+      long ordinals = ordinalTable(seasons, repeats);
+      long afterOrdinals = System.nanoTime();
+      if (constantBodies != switches || switches != fields || fields != ordinals) {
+        throw new IllegalStateException("The four ways returned different hours");
+      }
+
+      if (round == 4) {
+        double total = (double) repeats * size;
+        System.out.printf("%d calls, ns per call%n", repeats * (long) size);
+        System.out.printf("constant bodies\t%.2f%n", (afterConstantBodies - start) / total);
+        System.out.printf("switch\t\t%.2f%n", (afterSwitch - afterConstantBodies) / total);
+        System.out.printf("final field\t%.2f%n", (afterFields - afterSwitch) / total);
+        System.out.printf("ordinal table\t%.2f%n", (afterOrdinals - afterFields) / total);
+      }
+    }
+  }
+
+  // The results are added up (by identity hash, which differs per String) so that nothing can be
+  // skipped.
+  private static long constantBodies(SeasonAbstract[] seasons, int repeats) {
+    long sum = 0;
+    for (int repeat = 0; repeat < repeats; repeat++) {
+      for (SeasonAbstract season : seasons) {
+        sum += System.identityHashCode(season.getHours());
+      }
+    }
+    return sum;
+  }
+
+  private static long switches(Season[] seasons, int repeats) {
+    long sum = 0;
+    for (int repeat = 0; repeat < repeats; repeat++) {
+      for (Season season : seasons) {
+        sum += System.identityHashCode(hoursBySwitch(season));
+      }
+    }
+    return sum;
+  }
+
+  private static String hoursBySwitch(Season season) {
+    switch (season) {
+      case WINTER:
+        return "9am-3pm";
+      case SUMMER:
+        return "9am-7pm";
+      default:
+        return "9am-5pm";
+    }
+  }
+
+  private static long fields(SeasonTable[] seasons, int repeats) {
+    long sum = 0;
+    for (int repeat = 0; repeat < repeats; repeat++) {
+      for (SeasonTable season : seasons) {
+        sum += System.identityHashCode(season.getHours());
+      }
+    }
+    return sum;
+  }
+
+  private static long ordinalTable(Season[] seasons, int repeats) {
+    long sum = 0;
+    for (int repeat = 0; repeat < repeats; repeat++) {
+      for (Season season : seasons) {
+        sum += System.identityHashCode(HOURS_BY_ORDINAL[season.ordinal()]);
+      }
+    }
+    return sum;
+  }
+}
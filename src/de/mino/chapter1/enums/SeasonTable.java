@@ -0,0 +1,28 @@
+package de.mino.chapter1.enums;
+
+/**
+ * The same opening hours as {@link SeasonAbstract}, but stored as data: every constant passes its
+ * hours to the constructor and there are no constant specific bodies. All constants are then
+ * instances of the same class, so 'season.getHours()' is a single, inlinable method that just reads
+ * a final field, no matter how many seasons the call sees.
+ *
+ * <p>Use constant bodies when the constants really behave differently, and fields (or a table
+ * indexed by ordinal()) when they only differ in their data.
+ */
+public enum SeasonTable implements SeasonHours {
+  WINTER("9am-3pm"),
+  SPRING("9am-5pm"),
+  SUMMER("9am-7pm"),
+  FALL("9am-5pm");
+
+  private final String hours;
+
+  SeasonTable(String hours) {
+    this.hours = hours;
+  }
+
+  @Override
+  public String getHours() {
+    return hours;
+  }
+}
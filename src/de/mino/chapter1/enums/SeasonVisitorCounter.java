@@ -0,0 +1,90 @@
+package de.mino.chapter1.enums;
+
+import java.util.EnumMap;
+
+/**
+ * Counts visitors per {@link Season} and compares them with the expected number of visitors.
+ *
+ * <p>The counts are stored in a long array indexed by the ordinal of the season, which is what an
+ * {@link EnumMap} does internally too, but without boxing the counts. The expected visitors come
+ * from {@link SeasonConstructor}: each level ("Low", "Medium", "High") is mapped to a capacity.
+ *
+ * <p>Not thread safe. Use one counter per thread and {@link #addAll} them at the end.
+ */
+public class SeasonVisitorCounter {
+
+  private static final Season[] SEASONS = Season.values();
+
+  private final long[] counts = new long[SEASONS.length];
+  private final long[] capacities = new long[SEASONS.length];
+
+  public SeasonVisitorCounter(long lowCapacity, long mediumCapacity, long highCapacity) {
+    for (Season season : SEASONS) {
+      // Season and SeasonConstructor have constants with the same names.
+      String level = SeasonConstructor.valueOf(season.name()).expectedVisitors;
+      switch (level) {
+        case "Low":
+          capacities[season.ordinal()] = lowCapacity;
+          break;
+        case "Medium":
+          capacities[season.ordinal()] = mediumCapacity;
+          break;
+        case "High":
+          capacities[season.ordinal()] = highCapacity;
+          break;
+        default:
+          throw new IllegalStateException("Unknown visitor level " + level + " for " + season);
+      }
+    }
+  }
+
+  public void record(Season season) {
+    counts[season.ordinal()]++;
+  }
+
+  /** Counts one visitor at the given time (milliseconds since 1970-01-01, UTC). */
+  public void recordEpochMilli(long epochMilli) {
+    counts[SeasonCalendar.seasonOfEpochMilli(epochMilli).ordinal()]++;
+  }
+
+  public void add(Season season, long visitors) {
+    counts[season.ordinal()] += visitors;
+  }
+
+  public void addAll(SeasonVisitorCounter other) {
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] += other.counts[i];
+    }
+  }
+
+  public long get(Season season) {
+    return counts[season.ordinal()];
+  }
+
+  public long getCapacity(Season season) {
+    return capacities[season.ordinal()];
+  }
+
+  public EnumMap<Season, Long> toEnumMap() {
+    EnumMap<Season, Long> result = new EnumMap<>(Season.class);
+    for (Season season : SEASONS) {
+      result.put(season, counts[season.ordinal()]);
+    }
+    return result;
+  }
+
+  /** Visitors divided by capacity per season, e.g. 1.2 means 20% more visitors than expected. */
+  public EnumMap<Season, Double> getUtilization() {
+    EnumMap<Season, Double> result = new EnumMap<>(Season.class);
+    for (Season season : SEASONS) {
+      int i = season.ordinal();
+      result.put(season, capacities[i] == 0 ? 0 : (double) counts[i] / capacities[i]);
+    }
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return toEnumMap().toString();
+  }
+}
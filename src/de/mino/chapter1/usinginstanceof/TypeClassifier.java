@@ -0,0 +1,118 @@
+package de.mino.chapter1.usinginstanceof;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replaces a chain of instanceof checks like
+ *
+ * <pre>
+ * if (animal instanceof Hippo) { ... } else if (animal instanceof Mother) { ... } else ...
+ * </pre>
+ *
+ * by a table lookup. The rules are checked in the order they were added, the first one that
+ * matches wins, just like in the chain. A rule matches with the same meaning as instanceof: the
+ * class itself, a subclass of it, or a class that implements the interface (e.g. {@link Mother}).
+ *
+ * <p>The rules are only evaluated once per concrete class and the result (the index of the
+ * matching rule) is cached in a {@link ClassValue}. After that, classifying an object is a cache
+ * lookup and an array access, no matter how many rules there are. Classes loaded later (e.g. a new
+ * subclass of Hippo) are classified the first time an instance of them is seen.
+ *
+ * @param <H> the type of the handlers, e.g. a Consumer
+ */
+public final class TypeClassifier<H> {
+
+  private final Class<?>[] types;
+  // handlers[i] belongs to types[i], the last one is used when no rule matches.
+  private final H[] handlers;
+
+  private final ClassValue<Integer> categories =
+      new ClassValue<Integer>() {
+        @Override
+        protected Integer computeValue(Class<?> type) {
+          for (int i = 0; i < types.length; i++) {
+            if (types[i].isAssignableFrom(type)) {
+              return i;
+            }
+          }
+          return types.length;
+        }
+      };
+
+  private TypeClassifier(Class<?>[] types, H[] handlers) {
+    this.types = types;
+    this.handlers = handlers;
+  }
+
+  public static <H> Builder<H> builder() {
+    return new Builder<>();
+  }
+
+  /**
+   * Returns the index of the first rule that matches, or {@link #getRuleCount()} if none does (also
+   * for null, like instanceof).
+   */
+  public int classify(Object object) {
+    if (object == null) {
+      return types.length;
+    }
+    return categories.get(object.getClass());
+  }
+
+  /** The handler of the first rule that matches, or the fallback handler. */
+  public H handlerFor(Object object) {
+    return handlers[classify(object)];
+  }
+
+  public int getRuleCount() {
+    return types.length;
+  }
+
+  public static final class Builder<H> {
+    private final List<Class<?>> types = new ArrayList<>();
+    private final List<H> handlers = new ArrayList<>();
+    private H fallback;
+
+    private Builder() {}
+
+    /** Adds a rule. Rules added earlier win, so add the more specific types first. */
+    public Builder<H> when(Class<?> type, H handler) {
+      if (type.isPrimitive()) {
+        throw new IllegalArgumentException("Objects are never instances of " + type);
+      }
+      types.add(type);
+      handlers.add(handler);
+      return this;
+    }
+
+    /** The handler for objects no rule matches. Without it, handlerFor() returns null for them. */
+    public Builder<H> otherwise(H handler) {
+      this.fallback = handler;
+      return this;
+    }
+
+    public TypeClassifier<H> build() {
+      // One more slot at the end for the fallback.
+      @SuppressWarnings("unchecked")
+      H[] table = (H[]) handlers.toArray(new Object[handlers.size() + 1]);
+      table[handlers.size()] = fallback;
+      return new TypeClassifier<>(types.toArray(new Class<?>[0]), table);
+    }
+  }
+
+  public static void main(String[] args) {
+    TypeClassifier<String> classifier =
+        TypeClassifier.<String>builder()
+            .when(Hippo.class, "hippo")
+            .when(Mother.class, "mother")
+            .when(HeavyAnimal.class, "heavy animal")
+            .otherwise("something else")
+            .build();
+    System.out.println(classifier.handlerFor(new Hippo())); // hippo
+    System.out.println(classifier.handlerFor(new Elephant())); // heavy animal
+    System.out.println(classifier.handlerFor(new Mother() {})); // mother
+    System.out.println(classifier.handlerFor("hippo")); // something else
+    System.out.println(classifier.handlerFor(null)); // something else
+  }
+}
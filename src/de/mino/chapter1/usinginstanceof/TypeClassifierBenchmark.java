@@ -0,0 +1,132 @@
+package de.mino.chapter1.usinginstanceof;
+
+import java.util.Random;
+
+/**
+ * Compares a chain of 10 instanceof checks with {@link TypeClassifier} for the same 10 rules. The
+ * animals are a random mix of 10 classes, so most of them go far down the chain. Some rules are
+ * interfaces, an instanceof check against an interface is slower than one against a class.
+ *
+ * <p>Usage: {@code TypeClassifierBenchmark [animals]}
+ */
+public class TypeClassifierBenchmark {
+
+  // More animals for a deeper hierarchy.
+  private static class Rhino extends HeavyAnimal {}
+
+  private static class Walrus extends HeavyAnimal {}
+
+  private static class Bison extends HeavyAnimal {}
+
+  private static class Moose extends HeavyAnimal {}
+
+  private interface Herbivore {}
+
+  private static class MotherHippo extends Hippo implements Mother {}
+
+  private static class MotherElephant extends Elephant implements Mother, Herbivore {}
+
+  private static class Manatee extends HeavyAnimal implements Herbivore {}
+
+  private static class Kangaroo implements Mother {}
+
+  public static void main(String[] args) {
+    int count = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+    TypeClassifier<Object> classifier =
+        TypeClassifier.builder()
+            .when(MotherHippo.class, null)
+            .when(MotherElephant.class, null)
+            .when(Rhino.class, null)
+            .when(Walrus.class, null)
+            .when(Bison.class, null)
+            .when(Moose.class, null)
+            .when(Herbivore.class, null)
+            .when(Hippo.class, null)
+            .when(Mother.class, null)
+            .when(HeavyAnimal.class, null)
+            .build();
+
+    Object[] kinds = {
+      new MotherHippo(),
+      new MotherElephant(),
+      new Rhino(),
+      new Walrus(),
+      new Bison(),
+      new Moose(),
+      new Manatee(),
+      new Hippo(),
+      new Kangaroo(),
+      new Elephant(),
+      new HeavyAnimal(),
+      "not an animal"
+    };
+    Random random = new Random(42);
+    Object[] animals = new Object[count];
+    for (int i = 0; i < count; i++) {
+      animals[i] = kinds[random.nextInt(kinds.length)];
+    }
+    for (Object animal : kinds) {
+      if (chain(animal) != classifier.classify(animal)) {
+        throw new IllegalStateException("Different category for " + animal.getClass());
+      }
+    }
+
+    // Every round classifies about 50 million animals.
+    int repeats = Math.max(1, 50_000_000 / count);
+    for (int round = 0; round < 5; round++) {
+      // The first rounds are the warm-up, only the last one is printed.
+      long start = System.nanoTime();
+      long chainSum = 0;
+      for (int repeat = 0; repeat < repeats; repeat++) {
+        for (Object animal : animals) {
+          chainSum += chain(animal);
+        }
+      }
+      long chainTime = System.nanoTime() - start;
+
+      start = System.nanoTime();
+      long classifierSum = 0;
+      for (int repeat = 0; repeat < repeats; repeat++) {
+        for (Object animal : animals) {
+          classifierSum += classifier.classify(animal);
+        }
+      }
+      long classifierTime = System.nanoTime() - start;
+      if (chainSum != classifierSum) {
+        throw new IllegalStateException("Different categories");
+      }
+
+      if (round == 4) {
+        double calls = (double) repeats * count;
+        System.out.printf("instanceof chain\t%.2f ns%n", chainTime / calls);
+        System.out.printf("TypeClassifier\t\t%.2f ns%n", classifierTime / calls);
+      }
+    }
+  }
+
+  // The same rules as the classifier, written as an instanceof chain.
+  private static int chain(Object animal) {
+    if (animal instanceof MotherHippo) {
+      return 0;
+    } else if (animal instanceof MotherElephant) {
+      return 1;
+    } else if (animal instanceof Rhino) {
+      return 2;
+    } else if (animal instanceof Walrus) {
+      return 3;
+    } else if (animal instanceof Bison) {
+      return 4;
+    } else if (animal instanceof Moose) {
+      return 5;
+    } else if (animal instanceof Herbivore) {
+      return 6;
+    } else if (animal instanceof Hippo) {
+      return 7;
+    } else if (animal instanceof Mother) {
+      return 8;
+    } else if (animal instanceof HeavyAnimal) {
+      return 9;
+    }
+    return 10;
+  }
+}
@@ -2,18 +2,24 @@ package de.mino.chapter2.design_patterns.builder;
 
 import de.mino.chapter2.design_patterns.immutable.Animal;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Builder pattern for the immutable Animal class we built earlier in
  * 'design_patterns.immutable.Animal'
+ *
+ * <p>Instead of building an Animal, the builder can also append the animal as a new row to an
+ * {@link AnimalTable} ({@link #appendTo}). Together with {@link #reset()} a single builder can then
+ * import millions of rows without creating an object per row.
  */
 // Note that the Builder itself is mutable. However the result of the build() Method is an immutable
 // object
 public class AnimalBuilder {
   private String species;
   private int age;
-  private List<String> favoriteFoods;
+  // Owned by the builder and reused after reset(), so the caller's list is never kept or changed.
+  private final List<String> favoriteFoods = new ArrayList<>();
 
   // The setters return an instance of the builder object 'this'. That way they can be chained
   // together and be called in any order.
@@ -28,7 +34,13 @@ public class AnimalBuilder {
   }
 
   public AnimalBuilder setFavoriteFoods(List<String> favoriteFoods) {
-    this.favoriteFoods = favoriteFoods;
+    this.favoriteFoods.clear();
+    this.favoriteFoods.addAll(favoriteFoods);
+    return this;
+  }
+
+  public AnimalBuilder addFavoriteFood(String food) {
+    favoriteFoods.add(food);
     return this;
   }
 
@@ -36,4 +48,20 @@ public class AnimalBuilder {
   public Animal build() {
     return new Animal(species, age, favoriteFoods);
   }
+
+  /** Appends the animal as a new row to the table instead of creating an Animal. Returns the row. */
+  public int appendTo(AnimalTable table) {
+    if (species == null) {
+      throw new IllegalStateException("The species is required");
+    }
+    return table.add(species, age, favoriteFoods);
+  }
+
+  /** Clears all fields so the builder can be used for the next animal. */
+  public AnimalBuilder reset() {
+    species = null;
+    age = 0;
+    favoriteFoods.clear();
+    return this;
+  }
 }
@@ -0,0 +1,161 @@
+package de.mino.chapter2.design_patterns.builder;
+
+import de.mino.chapter2.design_patterns.immutable.Animal;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stores many animals column by column instead of one Animal object each (struct of arrays). It is
+ * filled with {@link AnimalBuilder#appendTo(AnimalTable)}.
+ *
+ * <p>Species and foods are dictionary encoded: every distinct name is stored once and the rows only
+ * keep its number (code). The favorite foods of all rows share one pool: the foods of row i are
+ * foodCodes[foodOffsets[i]] until foodCodes[foodOffsets[i + 1]]. A scan like "average age per
+ * species" then only walks two int arrays.
+ *
+ * <p>Not thread safe. Fill the table first, then read it (from any thread after a safe publication).
+ */
+public class AnimalTable {
+
+  private int size;
+  private int[] speciesCodes;
+  private int[] ages;
+  // One more entry than rows, foodOffsets[size] is the end of the pool.
+  private int[] foodOffsets;
+  private int[] foodCodes;
+
+  private final List<String> species = new ArrayList<>();
+  private final Map<String, Integer> speciesDictionary = new HashMap<>();
+  private final List<String> foods = new ArrayList<>();
+  private final Map<String, Integer> foodDictionary = new HashMap<>();
+
+  public AnimalTable() {
+    this(16);
+  }
+
+  /** @param expectedRows initial capacity, to avoid growing the columns while importing */
+  public AnimalTable(int expectedRows) {
+    int capacity = Math.max(expectedRows, 1);
+    speciesCodes = new int[capacity];
+    ages = new int[capacity];
+    foodOffsets = new int[capacity + 1];
+    foodCodes = new int[capacity * 2];
+  }
+
+  // Called by the builder. Returns the new row.
+  int add(String speciesName, int age, List<String> favoriteFoods) {
+    if (size == ages.length) {
+      int capacity = size * 2;
+      speciesCodes = Arrays.copyOf(speciesCodes, capacity);
+      ages = Arrays.copyOf(ages, capacity);
+      foodOffsets = Arrays.copyOf(foodOffsets, capacity + 1);
+    }
+    int foodCount = favoriteFoods.size();
+    int start = foodOffsets[size];
+    if (start + foodCount > foodCodes.length) {
+      foodCodes = Arrays.copyOf(foodCodes, Math.max(foodCodes.length * 2, start + foodCount));
+    }
+    for (int i = 0; i < foodCount; i++) {
+      foodCodes[start + i] = code(favoriteFoods.get(i), foods, foodDictionary);
+    }
+    speciesCodes[size] = code(speciesName, species, speciesDictionary);
+    ages[size] = age;
+    foodOffsets[size + 1] = start + foodCount;
+    return size++;
+  }
+
+  private static int code(String value, List<String> values, Map<String, Integer> dictionary) {
+    Integer code = dictionary.get(value);
+    if (code == null) {
+      code = values.size();
+      values.add(value);
+      dictionary.put(value, code);
+    }
+    return code;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public String getSpecies(int row) {
+    return species.get(speciesCodes[checkRow(row)]);
+  }
+
+  public int getAge(int row) {
+    return ages[checkRow(row)];
+  }
+
+  /** Read-only view of the favorite foods of one row, nothing is copied. */
+  public List<String> getFavoriteFoods(int row) {
+    int start = foodOffsets[checkRow(row)];
+    int end = foodOffsets[row + 1];
+    return new AbstractList<String>() {
+      @Override
+      public String get(int index) {
+        if (index < 0 || index >= end - start) {
+          throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + (end - start));
+        }
+        return foods.get(foodCodes[start + index]);
+      }
+
+      @Override
+      public int size() {
+        return end - start;
+      }
+    };
+  }
+
+  /** Creates an Animal object for one row, e.g. to hand it to code that expects one. */
+  public Animal toAnimal(int row) {
+    return new Animal(getSpecies(row), getAge(row), getFavoriteFoods(row));
+  }
+
+  /** Average age per species, in the order the species first appeared. */
+  public Map<String, Double> averageAgeBySpecies() {
+    // One pass over two int columns, the sums are indexed by species code.
+    long[] sums = new long[species.size()];
+    int[] counts = new int[species.size()];
+    for (int row = 0; row < size; row++) {
+      int code = speciesCodes[row];
+      sums[code] += ages[row];
+      counts[code]++;
+    }
+    Map<String, Double> result = new LinkedHashMap<>();
+    for (int code = 0; code < sums.length; code++) {
+      result.put(species.get(code), (double) sums[code] / counts[code]);
+    }
+    return result;
+  }
+
+  /** How many animals have the given food among their favorites. */
+  public int countWithFavoriteFood(String food) {
+    Integer code = foodDictionary.get(food);
+    if (code == null) {
+      return 0;
+    }
+    int count = 0;
+    for (int row = 0; row < size; row++) {
+      for (int i = foodOffsets[row]; i < foodOffsets[row + 1]; i++) {
+        if (foodCodes[i] == code) {
+          count++;
+          break;
+        }
+      }
+    }
+    return count;
+  }
+
+  private int checkRow(int row) {
+    if (row < 0 || row >= size) {
+      throw new IndexOutOfBoundsException("Row: " + row + ", Size: " + size);
+    }
+    return row;
+  }
+}
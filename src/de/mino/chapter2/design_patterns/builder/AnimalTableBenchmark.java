@@ -0,0 +1,107 @@
+package de.mino.chapter2.design_patterns.builder;
+
+import de.mino.chapter2.design_patterns.immutable.Animal;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares importing animals into an {@link AnimalTable} (one reused builder) against building a
+ * {@code List<Animal>}: import time, heap footprint and the time of an "average age per species"
+ * scan.
+ *
+ * <p>Usage: {@code AnimalTableBenchmark [rows]}
+ */
+public class AnimalTableBenchmark {
+
+  private static final String[] SPECIES = {
+    "duck", "llama", "lion", "zebra", "penguin", "giraffe", "elephant", "koala"
+  };
+  private static final String[] FOODS = {
+    "grass", "fish", "hay", "pellets", "fruit", "leaves", "meat", "insects", "seeds", "krill"
+  };
+
+  public static void main(String[] args) {
+    int rows = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+
+    for (int round = 0; round < 3; round++) {
+      // The first rounds are the warm-up, only the last one is printed.
+      boolean print = round == 2;
+
+      long heapBefore = usedHeap();
+      long start = System.nanoTime();
+      AnimalTable table = new AnimalTable(rows);
+      AnimalBuilder builder = new AnimalBuilder();
+      for (int i = 0; i < rows; i++) {
+        builder.reset().setSpecies(SPECIES[i % SPECIES.length]).setAge(i % 40);
+        for (int food = 0; food < 1 + i % 3; food++) {
+          builder.addFavoriteFood(FOODS[(i + food * 3) % FOODS.length]);
+        }
+        builder.appendTo(table);
+      }
+      long tableIngest = System.nanoTime() - start;
+      long tableHeap = usedHeap() - heapBefore;
+
+      heapBefore = usedHeap();
+      start = System.nanoTime();
+      List<Animal> list = new ArrayList<>(rows);
+      List<String> foods = new ArrayList<>();
+      for (int i = 0; i < rows; i++) {
+        foods.clear();
+        for (int food = 0; food < 1 + i % 3; food++) {
+          foods.add(FOODS[(i + food * 3) % FOODS.length]);
+        }
+        list.add(
+            new AnimalBuilder()
+                .setSpecies(SPECIES[i % SPECIES.length])
+                .setAge(i % 40)
+                .setFavoriteFoods(foods)
+                .build());
+      }
+      long listIngest = System.nanoTime() - start;
+      long listHeap = usedHeap() - heapBefore;
+
+      start = System.nanoTime();
+      Map<String, Double> tableAverages = table.averageAgeBySpecies();
+      long tableScan = System.nanoTime() - start;
+      start = System.nanoTime();
+      Map<String, Double> listAverages = averageAgeBySpecies(list);
+      long listScan = System.nanoTime() - start;
+      if (!tableAverages.equals(listAverages)) {
+        throw new IllegalStateException(tableAverages + " != " + listAverages);
+      }
+
+      if (print) {
+        System.out.printf("%d rows%n", rows);
+        System.out.printf("\t\tAnimalTable\tList<Animal>%n");
+        System.out.printf(
+            "ingest ms\t%d\t\t%d%n", tableIngest / 1_000_000, listIngest / 1_000_000);
+        System.out.printf("heap MB\t\t%d\t\t%d%n", tableHeap >> 20, listHeap >> 20);
+        System.out.printf("scan ms\t\t%.2f\t\t%.2f%n", tableScan / 1e6, listScan / 1e6);
+      }
+    }
+  }
+
+  private static Map<String, Double> averageAgeBySpecies(List<Animal> animals) {
+    Map<String, long[]> sums = new HashMap<>();
+    for (Animal animal : animals) {
+      long[] sum = sums.computeIfAbsent(animal.getSpecies(), species -> new long[2]);
+      sum[0] += animal.getAge();
+      sum[1]++;
+    }
+    Map<String, Double> result = new HashMap<>();
+    sums.forEach((species, sum) -> result.put(species, (double) sum[0] / sum[1]));
+    return result;
+  }
+
+  // Only a rough number, but good enough to compare the two layouts.
+  private static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
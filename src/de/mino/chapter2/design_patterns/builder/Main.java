@@ -13,5 +13,15 @@ public class Main {
             .setSpecies("duck")
             .build();
     System.out.println(duck);
+
+    // The same builder can fill a table row by row, reset() clears it for the next animal.
+    AnimalTable table = new AnimalTable();
+    AnimalBuilder builder = new AnimalBuilder();
+    builder.setSpecies("duck").setAge(4).addFavoriteFood("grass").addFavoriteFood("fish");
+    builder.appendTo(table);
+    builder.reset().setSpecies("duck").setAge(2).addFavoriteFood("bread").appendTo(table);
+    builder.reset().setSpecies("llama").setAge(7).addFavoriteFood("hay").appendTo(table);
+    System.out.println(table.toAnimal(1));
+    System.out.println(table.averageAgeBySpecies());
   }
 }
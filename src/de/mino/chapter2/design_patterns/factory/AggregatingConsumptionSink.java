@@ -0,0 +1,35 @@
+package de.mino.chapter2.design_patterns.factory;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/** Keeps only the totals per food type in memory. The totals can be read from any thread. */
+public class AggregatingConsumptionSink implements ConsumptionSink {
+
+  private static final int TYPES = 4;
+
+  private final AtomicLongArray quantities = new AtomicLongArray(TYPES);
+  private final AtomicLongArray events = new AtomicLongArray(TYPES);
+
+  @Override
+  public void onEvent(int typeCode, int quantity, long epochMilli) {
+    int type = typeCode >= 0 && typeCode < TYPES ? typeCode : ConsumptionEvents.OTHER;
+    quantities.addAndGet(type, quantity);
+    events.incrementAndGet(type);
+  }
+
+  public long getQuantity(int typeCode) {
+    return quantities.get(typeCode);
+  }
+
+  public long getEvents(int typeCode) {
+    return events.get(typeCode);
+  }
+
+  public long getTotalEvents() {
+    long total = 0;
+    for (int type = 0; type < TYPES; type++) {
+      total += events.get(type);
+    }
+    return total;
+  }
+}
@@ -0,0 +1,212 @@
+package de.mino.chapter2.design_patterns.factory;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Collects consumption events in a bounded ring buffer and writes them to a {@link
+ * ConsumptionSink} on a background thread, in batches.
+ *
+ * <p>The ring buffer is lock-free: many feeding threads can publish at the same time, only a single
+ * thread reads. Every slot has a sequence number that tells whether the slot is free for the
+ * producers or filled for the consumer. A producer claims a slot by increasing the shared tail with
+ * compareAndSet, writes the event into plain arrays and then publishes it by setting the sequence.
+ *
+ * <p>What happens when the buffer is full is decided by the {@link BackpressurePolicy}.
+ *
+ * <p>If the sink throws an exception, the publisher fails: the writer thread stops and all later
+ * events are dropped, whatever the policy is. Otherwise feeding threads with {@link
+ * BackpressurePolicy#BLOCK} would wait forever for space that nobody makes.
+ */
+public class AsyncConsumptionPublisher implements AutoCloseable {
+
+  public enum BackpressurePolicy {
+    // The feeding thread waits until there is space again. Nothing is lost.
+    BLOCK,
+    // The event is thrown away and counted as dropped.
+    DROP,
+    // Once the buffer is more than half full, only every n-th event (randomly) is kept. If it is
+    // completely full, events are dropped.
+    SAMPLE
+  }
+
+  private final int capacity;
+  private final int mask;
+  private final AtomicLongArray sequences;
+  private final int[] typeCodes;
+  private final int[] quantities;
+  private final long[] timestamps;
+  private final AtomicLong tail = new AtomicLong();
+  // Only written by the writer thread. Producers read it to see how full the buffer is.
+  private final AtomicLong head = new AtomicLong();
+
+  private final BackpressurePolicy policy;
+  private final int sampleRate;
+  private final int maxBatchSize;
+  private final ConsumptionSink sink;
+  private final Thread writer;
+  private final LongAdder dropped = new LongAdder();
+  private volatile boolean closed;
+  // Set by the writer thread when the sink threw.
+  private volatile RuntimeException failure;
+
+  /**
+   * @param capacity size of the ring buffer, rounded up to a power of two
+   * @param sampleRate with {@link BackpressurePolicy#SAMPLE}: keep 1 of sampleRate events while
+   *     the buffer is more than half full
+   */
+  public AsyncConsumptionPublisher(
+      ConsumptionSink sink,
+      int capacity,
+      BackpressurePolicy policy,
+      int sampleRate,
+      int maxBatchSize) {
+    if (capacity < 2 || sampleRate < 1 || maxBatchSize < 1) {
+      throw new IllegalArgumentException("Invalid ring buffer configuration");
+    }
+    this.capacity = Integer.highestOneBit(capacity * 2 - 1);
+    this.mask = this.capacity - 1;
+    this.sequences = new AtomicLongArray(this.capacity);
+    for (int i = 0; i < this.capacity; i++) {
+      sequences.set(i, i);
+    }
+    this.typeCodes = new int[this.capacity];
+    this.quantities = new int[this.capacity];
+    this.timestamps = new long[this.capacity];
+    this.sink = sink;
+    this.policy = policy;
+    this.sampleRate = sampleRate;
+    this.maxBatchSize = maxBatchSize;
+    this.writer = new Thread(this::drainLoop, "consumption-writer");
+    this.writer.setDaemon(true);
+    this.writer.start();
+  }
+
+  public AsyncConsumptionPublisher(ConsumptionSink sink, BackpressurePolicy policy) {
+    this(sink, 65_536, policy, 16, 1_024);
+  }
+
+  void publish(int typeCode, int quantity, long epochMilli) {
+    if (failure != null) {
+      // Nobody reads the buffer anymore.
+      dropped.increment();
+      return;
+    }
+    if (policy == BackpressurePolicy.SAMPLE
+        && tail.get() - head.get() > capacity / 2
+        && ThreadLocalRandom.current().nextInt(sampleRate) != 0) {
+      dropped.increment();
+      return;
+    }
+    while (!tryPublish(typeCode, quantity, epochMilli)) {
+      if (policy != BackpressurePolicy.BLOCK || closed || failure != null) {
+        dropped.increment();
+        return;
+      }
+      // Give the writer a moment to make space.
+      LockSupport.parkNanos(1_000);
+    }
+  }
+
+  private boolean tryPublish(int typeCode, int quantity, long epochMilli) {
+    while (true) {
+      long position = tail.get();
+      int slot = (int) position & mask;
+      long difference = sequences.get(slot) - position;
+      if (difference < 0) {
+        // The slot still holds an event from the previous round that wasn't read yet: full.
+        return false;
+      }
+      if (difference == 0 && tail.compareAndSet(position, position + 1)) {
+        typeCodes[slot] = typeCode;
+        quantities[slot] = quantity;
+        timestamps[slot] = epochMilli;
+        // Setting the sequence publishes the plain writes above to the writer thread.
+        sequences.set(slot, position + 1);
+        return true;
+      }
+      // Another producer took the slot, try the next one.
+    }
+  }
+
+  private void drainLoop() {
+    while (true) {
+      boolean wasClosed = closed;
+      int drained;
+      try {
+        drained = drainBatch();
+      } catch (RuntimeException e) {
+        failure = e;
+        System.err.println("Consumption sink failed, dropping all further events: " + e);
+        return;
+      }
+      if (drained == 0) {
+        if (wasClosed) {
+          return;
+        }
+        LockSupport.parkNanos(100_000);
+      }
+    }
+  }
+
+  private int drainBatch() {
+    long position = head.get();
+    int count = 0;
+    while (count < maxBatchSize) {
+      int slot = (int) position & mask;
+      if (sequences.get(slot) != position + 1) {
+        break; // Not published yet.
+      }
+      sink.onEvent(typeCodes[slot], quantities[slot], timestamps[slot]);
+      // Free the slot for the producers of the next round.
+      sequences.set(slot, position + capacity);
+      position++;
+      count++;
+    }
+    if (count > 0) {
+      head.set(position);
+      sink.endOfBatch();
+    }
+    return count;
+  }
+
+  public long getDropped() {
+    return dropped.sum();
+  }
+
+  /** The exception the sink threw, or null while everything works. */
+  public RuntimeException getFailure() {
+    return failure;
+  }
+
+  /**
+   * Uninstalls the publisher from {@link ConsumptionEvents}, writes everything still in the buffer
+   * and stops the writer thread.
+   *
+   * @throws IllegalStateException if the sink failed, so the buffered events couldn't be written
+   */
+  @Override
+  public void close() {
+    ConsumptionEvents.uninstall(this);
+    closed = true;
+    // Events that were published must still be written, so wait for the writer even if interrupted.
+    boolean interrupted = false;
+    while (true) {
+      try {
+        writer.join();
+        break;
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+    if (failure != null) {
+      throw new IllegalStateException("The consumption sink failed", failure);
+    }
+  }
+}
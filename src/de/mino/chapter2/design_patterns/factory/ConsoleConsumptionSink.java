@@ -0,0 +1,36 @@
+package de.mino.chapter2.design_patterns.factory;
+
+import java.io.PrintStream;
+
+/** Prints the events like Food.consumed() always did, but one print call per batch. */
+public class ConsoleConsumptionSink implements ConsumptionSink {
+
+  private final PrintStream out;
+  private final StringBuilder batch = new StringBuilder();
+
+  public ConsoleConsumptionSink() {
+    this(System.out);
+  }
+
+  public ConsoleConsumptionSink(PrintStream out) {
+    this.out = out;
+  }
+
+  @Override
+  public void onEvent(int typeCode, int quantity, long epochMilli) {
+    batch
+        .append(ConsumptionEvents.typeName(typeCode))
+        .append(" eaten: ")
+        .append(quantity)
+        .append(System.lineSeparator());
+  }
+
+  @Override
+  public void endOfBatch() {
+    if (batch.length() > 0) {
+      out.print(batch);
+      out.flush();
+      batch.setLength(0);
+    }
+  }
+}
@@ -0,0 +1,101 @@
+package de.mino.chapter2.design_patterns.factory;
+
+import de.mino.chapter2.design_patterns.factory.AsyncConsumptionPublisher.BackpressurePolicy;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Feeding throughput when every {@link Food#consumed()} prints directly to the console, compared
+ * to publishing into the {@link AsyncConsumptionPublisher} with a console sink and with an
+ * in-memory aggregating sink.
+ *
+ * <p>Usage: {@code ConsumptionBenchmark [threads] [feedingsPerThread]}
+ */
+public class ConsumptionBenchmark {
+
+  public static void main(String[] args) throws InterruptedException {
+    int threads =
+        args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+    int feedings = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+
+    PrintStream console = System.out;
+    // A console that swallows everything. It is still a synchronized PrintStream, so the lock that
+    // serializes the feeding threads is still there, only the terminal is taken out.
+    PrintStream silent =
+        new PrintStream(
+            new OutputStream() {
+              @Override
+              public void write(int b) {}
+
+              @Override
+              public void write(byte[] b, int off, int len) {}
+            });
+    System.setOut(silent);
+
+    StringBuilder report = new StringBuilder("mode\t\t\t\tfeedings/ms\tdropped\n");
+    for (int round = 0; round < 2; round++) {
+      // The first round is the warm-up.
+      report.setLength(report.indexOf("\n") + 1);
+      ConsumptionEvents.install(null);
+      report.append(line("console (synchronous)", run(threads, feedings), 0));
+
+      for (BackpressurePolicy policy : BackpressurePolicy.values()) {
+        AsyncConsumptionPublisher publisher =
+            new AsyncConsumptionPublisher(new ConsoleConsumptionSink(silent), policy);
+        ConsumptionEvents.install(publisher);
+        double throughput = run(threads, feedings);
+        publisher.close();
+        report.append(line("async console " + policy, throughput, publisher.getDropped()));
+      }
+
+      AggregatingConsumptionSink aggregator = new AggregatingConsumptionSink();
+      AsyncConsumptionPublisher publisher =
+          new AsyncConsumptionPublisher(aggregator, BackpressurePolicy.BLOCK);
+      ConsumptionEvents.install(publisher);
+      double throughput = run(threads, feedings);
+      publisher.close();
+      if (aggregator.getTotalEvents() != (long) threads * feedings) {
+        throw new IllegalStateException("Events got lost: " + aggregator.getTotalEvents());
+      }
+      report.append(line("async aggregator BLOCK", throughput, publisher.getDropped()));
+    }
+
+    System.setOut(console);
+    System.out.print(report);
+  }
+
+  private static String line(String name, double throughput, long dropped) {
+    return String.format("%-32s%.0f\t\t%d%n", name, throughput, dropped);
+  }
+
+  private static double run(int threads, int feedings) throws InterruptedException {
+    Food[] foods = {
+      FoodFactory.getFood("zebra"), FoodFactory.getFood("goat"), FoodFactory.getFood("polar bear")
+    };
+    CountDownLatch start = new CountDownLatch(1);
+    CountDownLatch done = new CountDownLatch(threads);
+    for (int t = 0; t < threads; t++) {
+      new Thread(
+              () -> {
+                try {
+                  start.await();
+                } catch (InterruptedException e) {
+                  Thread.currentThread().interrupt();
+                  return;
+                }
+                for (int i = 0; i < feedings; i++) {
+                  foods[i % foods.length].consumed();
+                }
+                done.countDown();
+              })
+          .start();
+    }
+    long startTime = System.nanoTime();
+    start.countDown();
+    done.await();
+    long elapsed = System.nanoTime() - startTime;
+    return (double) threads * feedings / (elapsed / 1_000_000.0);
+  }
+}
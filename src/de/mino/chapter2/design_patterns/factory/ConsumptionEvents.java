@@ -0,0 +1,48 @@
+package de.mino.chapter2.design_patterns.factory;
+
+/**
+ * Every time a {@link Food} is consumed, it publishes a small event here: the type of food as a
+ * number, the quantity and a timestamp. By default the event is printed right away, like it always
+ * was. When an {@link AsyncConsumptionPublisher} is installed, the event only goes into its ring
+ * buffer and a background thread writes it later, so the feeding threads don't have to wait for the
+ * console.
+ */
+public final class ConsumptionEvents {
+
+  // Type codes of the built-in food types. Foods of vendors use OTHER.
+  public static final int OTHER = 0;
+  public static final int HAY = 1;
+  public static final int PELLETS = 2;
+  public static final int FISH = 3;
+
+  private static final String[] TYPE_NAMES = {"Food", "Hay", "Pellets", "Fish"};
+
+  private static volatile AsyncConsumptionPublisher publisher;
+
+  private ConsumptionEvents() {}
+
+  public static void publish(int typeCode, int quantity) {
+    AsyncConsumptionPublisher current = publisher;
+    if (current == null) {
+      System.out.println(typeName(typeCode) + " eaten: " + quantity);
+    } else {
+      current.publish(typeCode, quantity, System.currentTimeMillis());
+    }
+  }
+
+  /** From now on events go to the given publisher. Pass null to print them directly again. */
+  public static synchronized void install(AsyncConsumptionPublisher asyncPublisher) {
+    publisher = asyncPublisher;
+  }
+
+  // Called when the publisher is closed. Only removes it if it wasn't replaced by another one.
+  static synchronized void uninstall(AsyncConsumptionPublisher asyncPublisher) {
+    if (publisher == asyncPublisher) {
+      publisher = null;
+    }
+  }
+
+  public static String typeName(int typeCode) {
+    return typeCode >= 0 && typeCode < TYPE_NAMES.length ? TYPE_NAMES[typeCode] : TYPE_NAMES[OTHER];
+  }
+}
@@ -0,0 +1,15 @@
+package de.mino.chapter2.design_patterns.factory;
+
+/**
+ * Where the {@link AsyncConsumptionPublisher} writes the consumption events to. All methods are
+ * called by the single background thread of the publisher, so a sink doesn't need to be
+ * thread-safe for writing.
+ */
+public interface ConsumptionSink {
+
+  // epochMilli is the time of the consumption in milliseconds since 1970-01-01 (UTC).
+  void onEvent(int typeCode, int quantity, long epochMilli);
+
+  // Called after every batch, e.g. to flush a buffer.
+  default void endOfBatch() {}
+}
@@ -0,0 +1,57 @@
+package de.mino.chapter2.design_patterns.factory;
+
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Counts the animals per species of a {@link FoodRegistry} table. The array is split in halves
+ * until the parts are small enough, each part is counted into its own array and the partial counts
+ * are added up on the way back.
+ */
+class CountPortionsTask extends RecursiveTask<long[]> {
+
+  private static final long serialVersionUID = 1L;
+
+  // Below this size splitting costs more than it gains.
+  private static final int THRESHOLD = 16_384;
+
+  private final FoodRegistry.Table table;
+  private final CharSequence[] animalNames;
+  private final int from;
+  private final int to;
+
+  CountPortionsTask(FoodRegistry.Table table, CharSequence[] animalNames) {
+    this(table, animalNames, 0, animalNames.length);
+  }
+
+  private CountPortionsTask(
+      FoodRegistry.Table table, CharSequence[] animalNames, int from, int to) {
+    this.table = table;
+    this.animalNames = animalNames;
+    this.from = from;
+    this.to = to;
+  }
+
+  @Override
+  protected long[] compute() {
+    if (to - from <= THRESHOLD) {
+      long[] counts = new long[table.size()];
+      for (int i = from; i < to; i++) {
+        counts[FoodFactory.requireEntry(table, animalNames[i]).index]++;
+      }
+      return counts;
+    }
+    int middle = (from + to) >>> 1;
+    CountPortionsTask left = new CountPortionsTask(table, animalNames, from, middle);
+    left.fork();
+    long[] right = new CountPortionsTask(table, animalNames, middle, to).compute();
+    long[] counts = left.join();
+    add(counts, right);
+    return counts;
+  }
+
+  static void add(long[] target, long[] source) {
+    for (int i = 0; i < target.length; i++) {
+      target[i] += source[i];
+    }
+  }
+}
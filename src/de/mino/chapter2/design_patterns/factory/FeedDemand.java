@@ -0,0 +1,37 @@
+package de.mino.chapter2.design_patterns.factory;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/** The total quantity of food needed, per type of food. Created by FoodFactory.planDemand(). */
+public final class FeedDemand {
+
+  private final Map<Class<? extends Food>, Long> quantities;
+
+  // 'portionCounts' holds the number of animals per entry of the table.
+  FeedDemand(FoodRegistry.Table table, long[] portionCounts) {
+    Map<Class<? extends Food>, Long> totals = new LinkedHashMap<>();
+    for (int i = 0; i < portionCounts.length; i++) {
+      Food portion = table.entries[i].standardPortion;
+      totals.merge(portion.getClass(), portionCounts[i] * portion.getQuantity(), Long::sum);
+    }
+    this.quantities = Collections.unmodifiableMap(totals);
+  }
+
+  public long getQuantity(Class<? extends Food> foodType) {
+    return quantities.getOrDefault(foodType, 0L);
+  }
+
+  public Map<Class<? extends Food>, Long> getQuantities() {
+    return quantities;
+  }
+
+  @Override
+  public String toString() {
+    StringJoiner joiner = new StringJoiner(", ", "FeedDemand{", "}");
+    quantities.forEach((type, quantity) -> joiner.add(type.getSimpleName() + "=" + quantity));
+    return joiner.toString();
+  }
+}
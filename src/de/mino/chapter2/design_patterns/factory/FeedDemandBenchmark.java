@@ -0,0 +1,62 @@
+package de.mino.chapter2.design_patterns.factory;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Plans the feed for a census of 10 million animals: the old way (one getFood() per animal and
+ * summing by hand), the parallel array planner and a sequential and parallel stream.
+ *
+ * <p>Usage: {@code FeedDemandBenchmark [animals]}
+ */
+public class FeedDemandBenchmark {
+
+  private static final String[] SPECIES = {"zebra", "Rabbit", "goat", "polar bear", "GOAT"};
+
+  public static void main(String[] args) {
+    int animals = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+    Random random = new Random(3);
+    String[] census = new String[animals];
+    for (int i = 0; i < animals; i++) {
+      census[i] = SPECIES[random.nextInt(SPECIES.length)];
+    }
+
+    System.out.println("variant\t\t\tms");
+    for (int round = 0; round < 3; round++) {
+      // The first rounds are the warm-up.
+      long start = System.nanoTime();
+      Map<Class<? extends Food>, Long> byHand = new HashMap<>();
+      for (String animal : census) {
+        Food food = FoodFactory.getFood(animal);
+        byHand.merge(food.getClass(), (long) food.getQuantity(), Long::sum);
+      }
+      print("getFood per animal", start, byHand);
+
+      start = System.nanoTime();
+      FeedDemand parallel = FoodFactory.planDemand(census);
+      print("planDemand(array)", start, parallel.getQuantities());
+
+      start = System.nanoTime();
+      FeedDemand stream = FoodFactory.planDemand(Arrays.stream(census));
+      print("sequential stream", start, stream.getQuantities());
+
+      start = System.nanoTime();
+      FeedDemand parallelStream = FoodFactory.planDemand(Arrays.stream(census).parallel());
+      print("parallel stream", start, parallelStream.getQuantities());
+
+      if (!byHand.equals(parallel.getQuantities())
+          || !byHand.equals(stream.getQuantities())
+          || !byHand.equals(parallelStream.getQuantities())) {
+        throw new IllegalStateException("The planners don't agree");
+      }
+    }
+  }
+
+  private static void print(String name, long start, Map<Class<? extends Food>, Long> result) {
+    long millis = (System.nanoTime() - start) / 1_000_000;
+    long total = result.values().stream().mapToLong(Long::longValue).sum();
+    System.out.printf("%-20s\t%d\t(%d in total)%n", name, millis, total);
+  }
+}
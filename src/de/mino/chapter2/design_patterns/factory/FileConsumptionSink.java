@@ -0,0 +1,53 @@
+package de.mino.chapter2.design_patterns.factory;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends one line per event to a file: timestamp (milliseconds since 1970-01-01, UTC), type and
+ * quantity separated by commas.
+ */
+public class FileConsumptionSink implements ConsumptionSink, Closeable {
+
+  private final BufferedWriter writer;
+
+  public FileConsumptionSink(Path file) throws IOException {
+    this.writer =
+        Files.newBufferedWriter(
+            file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+  }
+
+  @Override
+  public void onEvent(int typeCode, int quantity, long epochMilli) {
+    try {
+      writer.write(Long.toString(epochMilli));
+      writer.write(',');
+      writer.write(ConsumptionEvents.typeName(typeCode));
+      writer.write(',');
+      writer.write(Integer.toString(quantity));
+      writer.newLine();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public void endOfBatch() {
+    try {
+      writer.flush();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    writer.close();
+  }
+}
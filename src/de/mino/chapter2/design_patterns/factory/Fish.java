@@ -10,6 +10,6 @@ public class Fish extends Food {
 
   @Override
   public void consumed() {
-    System.out.println("Fish eaten: " + getQuantity());
+    ConsumptionEvents.publish(ConsumptionEvents.FISH, getQuantity());
   }
 }
@@ -2,9 +2,11 @@ package de.mino.chapter2.design_patterns.factory;
 
 public abstract class Food {
 
-  private int quantity;
+  // final: a Food never changes, which is what allows FoodFactory to share instances.
+  private final int quantity;
 
-  Food(int quantity) {
+  // protected so vendors can bring their own Food types (see FoodRegistry).
+  protected Food(int quantity) {
     this.quantity = quantity;
   }
 
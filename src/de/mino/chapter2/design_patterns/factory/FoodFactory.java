@@ -1,5 +1,9 @@
 package de.mino.chapter2.design_patterns.factory;
 
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
 /**
  * The goal is that the FoodFactory must be used to create a Food. We set the constructors of the
  * Food implementation classes to package private so this can be enforced. Thanks to the FoodFactory
@@ -11,18 +15,62 @@ public class FoodFactory {
   // Ofc in the real world it would be better to represent the Animals with actual classes instead
   // of just a String
   public static Food getFood(String animalName) {
-    // Depending on the animal name we return different types of food.
-    switch (animalName.toLowerCase()) {
-      case "zebra":
-        return new Hay(100);
-      case "rabbit":
-        return new Pellets(5);
-      case "goat":
-        return new Pellets(30);
-      case "polar bear":
-        return new Fish(10);
+    // Which animal gets which food is registered in the FoodRegistry (the built-in animals as well
+    // as the ones added by a vendor), so new animals don't need a change here.
+    Food food = FoodRegistry.getInstance().findFood(animalName);
+    if (food != null) {
+      return food;
     }
     // Good practice to throw an exception if no matching subclass could be found
     throw new UnsupportedOperationException("Unsupported animal: " + animalName);
   }
+
+  /**
+   * Same rules as {@link #getFood(String)}, but without allocating anything: the name is compared
+   * character by character instead of creating a lower case copy, and the shared standard portion
+   * of the species is returned. Accepts any CharSequence, e.g. a StringBuilder or a CharBuffer that
+   * is reused.
+   */
+  public static Food lookupFood(CharSequence animalName) {
+    return requireEntry(FoodRegistry.getInstance().snapshot(), animalName).standardPortion;
+  }
+
+  /**
+   * Plans the feed for a whole census, one entry per animal. Large arrays are split across the
+   * common fork-join pool. Only the animals per species are counted, no Food objects are created.
+   * All planDemand() methods use the species registered when they are called.
+   */
+  public static FeedDemand planDemand(CharSequence[] animalNames) {
+    FoodRegistry.Table table = FoodRegistry.getInstance().snapshot();
+    return new FeedDemand(
+        table, ForkJoinPool.commonPool().invoke(new CountPortionsTask(table, animalNames)));
+  }
+
+  // Same for a stream. If the stream is parallel, every thread counts into its own array and the
+  // arrays are added up at the end.
+  public static FeedDemand planDemand(Stream<? extends CharSequence> animalNames) {
+    FoodRegistry.Table table = FoodRegistry.getInstance().snapshot();
+    long[] counts =
+        animalNames.collect(
+            () -> new long[table.size()],
+            (partial, name) -> partial[requireEntry(table, name).index]++,
+            CountPortionsTask::add);
+    return new FeedDemand(table, counts);
+  }
+
+  // Same if we already know how many animals of each species there are.
+  public static FeedDemand planDemand(Map<? extends CharSequence, Long> speciesCounts) {
+    FoodRegistry.Table table = FoodRegistry.getInstance().snapshot();
+    long[] counts = new long[table.size()];
+    speciesCounts.forEach((name, count) -> counts[requireEntry(table, name).index] += count);
+    return new FeedDemand(table, counts);
+  }
+
+  static FoodRegistry.Entry requireEntry(FoodRegistry.Table table, CharSequence animalName) {
+    FoodRegistry.Entry entry = table.find(animalName);
+    if (entry == null) {
+      throw new UnsupportedOperationException("Unsupported animal: " + animalName);
+    }
+    return entry;
+  }
 }
@@ -0,0 +1,50 @@
+package de.mino.chapter2.design_patterns.factory;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Compares {@link FoodFactory#getFood(String)} with the allocation-free {@link
+ * FoodFactory#lookupFood(CharSequence)}: time and allocated bytes per lookup. The allocated bytes
+ * are read from the JVM's per-thread allocation counter (the same number JMH's {@code -prof gc}
+ * reports as gc.alloc.rate.norm).
+ *
+ * <p>Usage: {@code FoodFactoryBenchmark [lookups]}
+ */
+public class FoodFactoryBenchmark {
+
+  private interface Lookup {
+    Food find(String animalName);
+  }
+
+  private static final String[] ANIMALS = {"Zebra", "rabbit", "GOAT", "Polar Bear", "zebra"};
+
+  public static void main(String[] args) {
+    int lookups = args.length > 0 ? Integer.parseInt(args[0]) : 50_000_000;
+    com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    System.out.println("variant\t\tns/op\tbytes/op");
+    for (int round = 0; round < 3; round++) {
+      // The first rounds are the warm-up.
+      run("getFood", FoodFactory::getFood, lookups, threads);
+      run("lookupFood", FoodFactory::lookupFood, lookups, threads);
+    }
+  }
+
+  private static void run(
+      String name, Lookup lookup, int lookups, com.sun.management.ThreadMXBean threads) {
+    long threadId = Thread.currentThread().getId();
+    long bytesBefore = threads.getThreadAllocatedBytes(threadId);
+    long start = System.nanoTime();
+    long quantity = 0;
+    for (int i = 0; i < lookups; i++) {
+      quantity += lookup.find(ANIMALS[i % ANIMALS.length]).getQuantity();
+    }
+    long elapsed = System.nanoTime() - start;
+    long bytes = threads.getThreadAllocatedBytes(threadId) - bytesBefore;
+    // The summed quantity is printed as well so the JIT can't drop the loop.
+    System.out.printf(
+        "%-12s\t%.2f\t%.1f\t(%d)%n",
+        name, elapsed / (double) lookups, bytes / (double) lookups, quantity);
+  }
+}
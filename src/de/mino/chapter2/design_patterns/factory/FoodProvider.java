@@ -0,0 +1,10 @@
+package de.mino.chapter2.design_patterns.factory;
+
+/**
+ * Service provider interface for vendors that bring their own food types. A vendor jar lists its
+ * implementation in {@code META-INF/services/de.mino.chapter2.design_patterns.factory.FoodProvider}
+ * and the {@link FoodRegistry} calls it once when the registry is created.
+ */
+public interface FoodProvider {
+  void registerFoods(FoodRegistry registry);
+}
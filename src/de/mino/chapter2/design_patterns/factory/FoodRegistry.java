@@ -0,0 +1,206 @@
+package de.mino.chapter2.design_patterns.factory;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.function.Supplier;
+
+/**
+ * Registry of species to Food suppliers, the one place that knows which animal eats what. {@link
+ * FoodFactory} asks it for every lookup, so new food types can be added without touching the
+ * factory. Vendors register their types through a {@link FoodProvider} (found with the
+ * ServiceLoader) or by calling {@link #register} at runtime. Registering a species that is already
+ * known replaces its food, also for the built-in species.
+ *
+ * <p>Lookups happen all the time, registrations almost never. So the registry keeps an immutable
+ * {@link Table} that readers use without any lock. A registration copies the table, adds the new
+ * species and replaces the reference (copy-on-write).
+ */
+public final class FoodRegistry {
+
+  private static final MethodType FOOD_FACTORY = MethodType.methodType(Food.class);
+  private static final MethodType INT_CONSTRUCTOR = MethodType.methodType(void.class, int.class);
+
+  private static final FoodRegistry instance = new FoodRegistry();
+
+  public static FoodRegistry getInstance() {
+    return instance;
+  }
+
+  // volatile so a new table is immediately visible to readers.
+  private volatile Table table = new Table(new Entry[0]);
+
+  private FoodRegistry() {
+    // The built-in types are registered with lambdas, which saves the extra MethodHandle call.
+    register("zebra", () -> new Hay(100));
+    register("rabbit", () -> new Pellets(5));
+    register("goat", () -> new Pellets(30));
+    register("polar bear", () -> new Fish(10));
+    for (FoodProvider provider : ServiceLoader.load(FoodProvider.class)) {
+      provider.registerFoods(this);
+    }
+  }
+
+  /**
+   * Registers a food type that has a constructor taking the quantity. The constructor is looked up
+   * once here and bound to the quantity, so creating the Food later is a plain MethodHandle call
+   * without any reflection. The constructor must be public, unless the type is in this package.
+   */
+  public void register(String species, Class<? extends Food> type, int quantity) {
+    MethodHandle constructor;
+    try {
+      constructor =
+          MethodHandles.insertArguments(
+                  MethodHandles.lookup().findConstructor(type, INT_CONSTRUCTOR), 0, quantity)
+              .asType(FOOD_FACTORY);
+    } catch (NoSuchMethodException | IllegalAccessException e) {
+      throw new IllegalArgumentException(
+          type.getName() + " needs an accessible constructor taking the quantity", e);
+    }
+    register(
+        species,
+        () -> {
+          try {
+            return (Food) constructor.invokeExact();
+          } catch (RuntimeException | Error e) {
+            throw e;
+          } catch (Throwable e) {
+            throw new IllegalStateException("Could not create food for " + species, e);
+          }
+        });
+  }
+
+  // Registers any supplier, e.g. a lambda or a constructor reference: () -> new Carrots(3)
+  public synchronized void register(String species, Supplier<? extends Food> supplier) {
+    // A supplier of a Food subtype only ever returns Foods, so it can be stored as Supplier<Food>.
+    @SuppressWarnings("unchecked")
+    Supplier<Food> food = (Supplier<Food>) supplier;
+    String key = toLowerCase(species);
+    Entry[] entries = table.entries;
+    Entry existing = table.find(key);
+    // A species that is registered again keeps its index, so the portion counts of planDemand()
+    // stay comparable.
+    int index = existing != null ? existing.index : entries.length;
+    Entry[] copy = Arrays.copyOf(entries, Math.max(entries.length, index + 1));
+    copy[index] = new Entry(key, food, index);
+    table = new Table(copy);
+  }
+
+  /** Returns a new Food for the species or null if nobody registered it. */
+  public Food findFood(String species) {
+    Entry entry = table.find(species);
+    return entry == null ? null : entry.supplier.get();
+  }
+
+  // The current table. It never changes, later registrations create a new one.
+  Table snapshot() {
+    return table;
+  }
+
+  // Character by character, like Table.find() compares the names.
+  private static String toLowerCase(String species) {
+    char[] chars = new char[species.length()];
+    for (int i = 0; i < chars.length; i++) {
+      chars[i] = Character.toLowerCase(species.charAt(i));
+    }
+    return new String(chars);
+  }
+
+  /** One registered species. */
+  static final class Entry {
+    // Lower case.
+    final String species;
+    final Supplier<Food> supplier;
+    // Food objects are immutable, so one portion per species can be shared (flyweight pattern)
+    // when a new object isn't needed. Created once at registration.
+    final Food standardPortion;
+    // Position in Table.entries. Used by planDemand() to count the animals per species.
+    final int index;
+
+    private Entry(String species, Supplier<Food> supplier, int index) {
+      this.species = species;
+      this.supplier = supplier;
+      this.standardPortion = supplier.get();
+      this.index = index;
+    }
+  }
+
+  /**
+   * An immutable snapshot of all registered species. The names are found with an open addressing
+   * hash table whose hash ignores the case, so any CharSequence can be looked up without creating
+   * a lower case copy (nothing is allocated).
+   */
+  static final class Table {
+    // By Entry.index.
+    final Entry[] entries;
+    // Twice as many slots as entries at least, null means empty.
+    private final Entry[] slots;
+    // Names are usually already lower case Strings. Their hash code is cached in the String, so
+    // this map finds them faster than hashing every character again.
+    private final Map<String, Entry> byName = new HashMap<>();
+
+    private Table(Entry[] entries) {
+      this.entries = entries;
+      for (Entry entry : entries) {
+        byName.put(entry.species, entry);
+      }
+      this.slots = new Entry[Integer.highestOneBit(Math.max(entries.length, 1) * 2 - 1) * 2];
+      for (Entry entry : entries) {
+        int slot = hash(entry.species) & (slots.length - 1);
+        while (slots[slot] != null) {
+          slot = (slot + 1) & (slots.length - 1);
+        }
+        slots[slot] = entry;
+      }
+    }
+
+    int size() {
+      return entries.length;
+    }
+
+    /** The entry of the species (in any case) or null. */
+    Entry find(CharSequence species) {
+      if (species instanceof String) {
+        Entry entry = byName.get(species);
+        if (entry != null) {
+          return entry;
+        }
+      }
+      int slot = hash(species) & (slots.length - 1);
+      Entry entry;
+      while ((entry = slots[slot]) != null) {
+        if (equalsIgnoreCase(species, entry.species)) {
+          return entry;
+        }
+        slot = (slot + 1) & (slots.length - 1);
+      }
+      return null;
+    }
+
+    private static int hash(CharSequence species) {
+      int hash = 0;
+      for (int i = 0; i < species.length(); i++) {
+        hash = 31 * hash + Character.toLowerCase(species.charAt(i));
+      }
+      // Spread the bits, the table only uses the lowest ones.
+      return hash ^ (hash >>> 16);
+    }
+
+    // 'lowerCaseName' must already be lower case.
+    private static boolean equalsIgnoreCase(CharSequence input, String lowerCaseName) {
+      if (input.length() != lowerCaseName.length()) {
+        return false;
+      }
+      for (int i = 0; i < lowerCaseName.length(); i++) {
+        if (Character.toLowerCase(input.charAt(i)) != lowerCaseName.charAt(i)) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+}
@@ -0,0 +1,68 @@
+package de.mino.chapter2.design_patterns.factory;
+
+/**
+ * Compares the hard-coded switch that {@link FoodFactory#getFood(String)} used before with a lookup
+ * in the {@link FoodRegistry}, which the factory uses now. Both create a new Food per call, so only
+ * the dispatch differs.
+ *
+ * <p>Usage: {@code FoodRegistryBenchmark [lookups]}
+ */
+public class FoodRegistryBenchmark {
+
+  private interface Lookup {
+    Food find(String animalName);
+  }
+
+  private static final String[] ANIMALS = {"zebra", "rabbit", "goat", "polar bear", "Zebra"};
+
+  public static void main(String[] args) {
+    int lookups = args.length > 0 ? Integer.parseInt(args[0]) : 50_000_000;
+    FoodRegistry registry = FoodRegistry.getInstance();
+
+    // A vendor adds a new species at runtime. From now on the factory knows it as well.
+    registry.register(
+        "giraffe",
+        () ->
+            new Food(40) {
+              @Override
+              public void consumed() {
+                System.out.println("Leaves eaten: " + getQuantity());
+              }
+            });
+    FoodFactory.getFood("Giraffe").consumed();
+
+    System.out.println("variant\t\tns/op");
+    for (int round = 0; round < 3; round++) {
+      // The first rounds are the warm-up.
+      run("switch", FoodRegistryBenchmark::switchFood, lookups);
+      run("registry", registry::findFood, lookups);
+    }
+  }
+
+  // The old FoodFactory.getFood().
+  private static Food switchFood(String animalName) {
+    switch (animalName.toLowerCase()) {
+      case "zebra":
+        return new Hay(100);
+      case "rabbit":
+        return new Pellets(5);
+      case "goat":
+        return new Pellets(30);
+      case "polar bear":
+        return new Fish(10);
+      default:
+        throw new UnsupportedOperationException("Unsupported animal: " + animalName);
+    }
+  }
+
+  private static void run(String name, Lookup lookup, int lookups) {
+    long start = System.nanoTime();
+    long quantity = 0;
+    for (int i = 0; i < lookups; i++) {
+      quantity += lookup.find(ANIMALS[i % ANIMALS.length]).getQuantity();
+    }
+    long elapsed = System.nanoTime() - start;
+    // The summed quantity is printed as well so the JIT can't drop the loop.
+    System.out.printf("%-12s\t%.2f\t(%d)%n", name, elapsed / (double) lookups, quantity);
+  }
+}
@@ -10,6 +10,6 @@ public class Hay extends Food {
 
   @Override
   public void consumed() {
-    System.out.println("Hay eaten: " + getQuantity());
+    ConsumptionEvents.publish(ConsumptionEvents.HAY, getQuantity());
   }
 }
@@ -10,6 +10,6 @@ public class Pellets extends Food{
 
   @Override
   public void consumed() {
-    System.out.println("Pellets eaten: " + getQuantity());
+    ConsumptionEvents.publish(ConsumptionEvents.PELLETS, getQuantity());
   }
 }
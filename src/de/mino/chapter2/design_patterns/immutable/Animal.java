@@ -10,18 +10,26 @@ public final class Animal {
   // All fields are private and final
   private final String species;
   private final int age;
-  private final List<String> favoriteFoods;
+  private final PersistentVector<String> favoriteFoods;
 
   // Everything is set with the Constructor and nothing can change afterwards.
   public Animal(String species, int age, List<String> favoriteFoods) {
     this.species = species;
     this.age = age;
-    this.favoriteFoods = new ArrayList<>(favoriteFoods); // !!!
+    this.favoriteFoods = PersistentVector.copyOf(favoriteFoods); // !!!
     // Important to not just write 'this.favoriteFoods = favoriteFoods' because otherwise the caller
     // that creates the object is using the same reference as the immutable object, which means we
     // could change the List because List itself is mutable.
   }
 
+  // Used by the "with" methods. The PersistentVector itself is immutable, so it can be shared
+  // between the old and the new Animal without copying.
+  private Animal(String species, int age, PersistentVector<String> favoriteFoods) {
+    this.species = species;
+    this.age = age;
+    this.favoriteFoods = favoriteFoods;
+  }
+
   public String getSpecies() {
     return species;
   }
@@ -38,6 +46,21 @@ public final class Animal {
     return favoriteFoods.get(index);
   }
 
+  // "Modifying" methods (withers). Each returns a new Animal and leaves this one unchanged. Thanks to
+  // the PersistentVector adding a favorite food doesn't copy the whole list, the new Animal shares
+  // almost all of it with the old one.
+  public Animal withSpecies(String species) {
+    return new Animal(species, age, favoriteFoods);
+  }
+
+  public Animal withAge(int age) {
+    return new Animal(species, age, favoriteFoods);
+  }
+
+  public Animal withFavoriteFood(String food) {
+    return new Animal(species, age, favoriteFoods.append(food));
+  }
+
   // Don't create a getter for 'favoriteFoods' otherwise the class wouldn't be immutable since we
   // could change the contents in the List (A List itself is mutable)
   // However we could create a copy like that:
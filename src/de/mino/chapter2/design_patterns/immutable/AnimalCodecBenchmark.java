@@ -0,0 +1,181 @@
+package de.mino.chapter2.design_patterns.immutable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares the binary {@link AnimalWriter}/{@link AnimalReader} format against Java serialization:
+ * encode and decode time and bytes per record. Decoding is measured both as Animal objects and as
+ * zero-copy {@link AnimalView}s. A last round goes through a file channel.
+ *
+ * <p>Animal itself isn't Serializable, so Java serialization writes a copy with the same fields.
+ *
+ * <p>Usage: {@code AnimalCodecBenchmark [records]}
+ */
+public class AnimalCodecBenchmark {
+
+  private static final String[] SPECIES = {
+    "duck", "llama", "lion", "zebra", "penguin", "giraffe", "elephant", "koala"
+  };
+  private static final String[] FOODS = {
+    "grass", "fish", "hay", "pellets", "fruit", "leaves", "meat", "insects", "seeds", "krill"
+  };
+
+  public static void main(String[] args) throws Exception {
+    int records = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+    List<Animal> animals = new ArrayList<>(records);
+    List<SerializableAnimal> copies = new ArrayList<>(records);
+    for (int i = 0; i < records; i++) {
+      List<String> foods = new ArrayList<>();
+      for (int food = 0; food < 1 + i % 3; food++) {
+        foods.add(FOODS[(i + food * 3) % FOODS.length]);
+      }
+      Animal animal = new Animal(SPECIES[i % SPECIES.length], i % 40, foods);
+      animals.add(animal);
+      copies.add(new SerializableAnimal(animal));
+    }
+
+    System.out.printf("%d records%n", records);
+    System.out.printf("\t\t\tencode ms\tdecode ms\tbytes/record%n");
+    for (int round = 0; round < 3; round++) {
+      // The first rounds are the warm-up, only the last one is printed.
+      boolean print = round == 2;
+
+      ByteBuffer buffer = ByteBuffer.allocate(records * 32);
+      long start = System.nanoTime();
+      AnimalWriter writer = new AnimalWriter(buffer);
+      for (Animal animal : animals) {
+        writer.write(animal);
+      }
+      long encode = System.nanoTime() - start;
+      buffer.flip();
+      int binaryBytes = buffer.remaining();
+
+      start = System.nanoTime();
+      long ageSum = sumAnimals(new AnimalReader(buffer.duplicate()));
+      long decodeObjects = System.nanoTime() - start;
+
+      start = System.nanoTime();
+      long viewAgeSum = sumViews(new AnimalReader(buffer.duplicate()));
+      long decodeViews = System.nanoTime() - start;
+      if (ageSum != viewAgeSum) {
+        throw new IllegalStateException("The views read different data");
+      }
+
+      start = System.nanoTime();
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+        for (SerializableAnimal copy : copies) {
+          out.writeObject(copy);
+        }
+      }
+      long serialize = System.nanoTime() - start;
+
+      start = System.nanoTime();
+      long serializedAgeSum = 0;
+      try (ObjectInputStream in =
+          new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+        for (int i = 0; i < records; i++) {
+          SerializableAnimal copy = (SerializableAnimal) in.readObject();
+          serializedAgeSum += copy.age + copy.favoriteFoods.size();
+        }
+      }
+      long deserialize = System.nanoTime() - start;
+      if (serializedAgeSum != ageSum) {
+        throw new IllegalStateException("Serialization read different data");
+      }
+
+      long[] channelTimes = roundTripThroughFile(animals, ageSum);
+
+      if (print) {
+        double binaryPerRecord = (double) binaryBytes / records;
+        double serializedPerRecord = (double) bytes.size() / records;
+        System.out.printf(
+            "binary, Animal\t\t%d\t\t%d\t\t%.1f%n",
+            encode / 1_000_000, decodeObjects / 1_000_000, binaryPerRecord);
+        System.out.printf(
+            "binary, view\t\t%d\t\t%d\t\t%.1f%n",
+            encode / 1_000_000, decodeViews / 1_000_000, binaryPerRecord);
+        System.out.printf(
+            "binary, file channel\t%d\t\t%d\t\t%.1f%n",
+            channelTimes[0] / 1_000_000, channelTimes[1] / 1_000_000, binaryPerRecord);
+        System.out.printf(
+            "Java serialization\t%d\t\t%d\t\t%.1f%n",
+            serialize / 1_000_000, deserialize / 1_000_000, serializedPerRecord);
+      }
+    }
+  }
+
+  // Ages plus number of foods of all records, just so the decoded data is used.
+  private static long sumAnimals(AnimalReader reader) throws IOException {
+    long sum = 0;
+    Animal animal;
+    while ((animal = reader.read()) != null) {
+      sum += animal.getAge() + animal.getFavoriteFoodsCount();
+    }
+    return sum;
+  }
+
+  private static long sumViews(AnimalReader reader) throws IOException {
+    long sum = 0;
+    AnimalView view;
+    while ((view = reader.next()) != null) {
+      sum += view.getAge() + view.getFavoriteFoodsCount();
+    }
+    return sum;
+  }
+
+  // Writes all animals to a temporary file and reads them back as views. Returns the two times.
+  private static long[] roundTripThroughFile(List<Animal> animals, long expectedSum)
+      throws IOException {
+    Path file = Files.createTempFile("animals", ".bin");
+    try {
+      long start = System.nanoTime();
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE);
+          AnimalWriter writer = new AnimalWriter(channel)) {
+        for (Animal animal : animals) {
+          writer.write(animal);
+        }
+      }
+      long write = System.nanoTime() - start;
+
+      start = System.nanoTime();
+      long sum;
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+        sum = sumViews(new AnimalReader(channel));
+      }
+      long read = System.nanoTime() - start;
+      if (sum != expectedSum) {
+        throw new IllegalStateException("The file contained different data");
+      }
+      return new long[] {write, read};
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  private static final class SerializableAnimal implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final String species;
+    private final int age;
+    private final ArrayList<String> favoriteFoods;
+
+    private SerializableAnimal(Animal animal) {
+      this.species = animal.getSpecies();
+      this.age = animal.getAge();
+      this.favoriteFoods = new ArrayList<>(animal.getFavoriteFoods());
+    }
+  }
+}
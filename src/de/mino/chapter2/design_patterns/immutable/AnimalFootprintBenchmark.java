@@ -0,0 +1,97 @@
+package de.mino.chapter2.design_patterns.immutable;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Heap footprint of 5 million {@link Animal}s compared to the same number of {@link
+ * CompactAnimal}s. Like in a real import every food name is a new String (e.g. parsed from a file).
+ * Besides the used heap the class histogram of the JVM (the same as {@code jmap -histo}) is printed
+ * for the classes that matter.
+ *
+ * <p>Usage: {@code AnimalFootprintBenchmark [animals]}
+ */
+public class AnimalFootprintBenchmark {
+
+  private static final String[] FOODS = {"grass", "fish", "meat", "fruit", "insects", "leaves"};
+  private static final String[] SPECIES = {"zebra", "penguin", "lion", "monkey", "lizard"};
+
+  public static void main(String[] args) throws JMException {
+    int count = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+
+    long before = usedHeap();
+    List<Animal> animals = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      animals.add(new Animal(SPECIES[i % SPECIES.length], i % 30, foods(i)));
+    }
+    long animalBytes = usedHeap() - before;
+    System.out.println("--- Animal ---");
+    printHistogram();
+    animals = null;
+
+    before = usedHeap();
+    List<CompactAnimal> compactAnimals = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      compactAnimals.add(new CompactAnimal(SPECIES[i % SPECIES.length], i % 30, foods(i)));
+    }
+    long compactBytes = usedHeap() - before;
+    System.out.println("--- CompactAnimal ---");
+    printHistogram();
+
+    System.out.printf(
+        "%n%d animals: Animal %d MB (%.1f bytes each), CompactAnimal %d MB (%.1f bytes each)%n",
+        count,
+        animalBytes >> 20,
+        animalBytes / (double) count,
+        compactBytes >> 20,
+        compactBytes / (double) count);
+    // Keep the list reachable until after the measurement.
+    System.out.println("Sample: " + compactAnimals.get(count - 1));
+  }
+
+  // Two or three favorite foods, each as its own String object.
+  private static List<String> foods(int i) {
+    return Arrays.asList(
+        new String(FOODS[i % FOODS.length]),
+        new String(FOODS[(i + 1) % FOODS.length]),
+        new String(FOODS[(i + 2) % FOODS.length]))
+        .subList(0, 2 + i % 2);
+  }
+
+  private static void printHistogram() throws JMException {
+    String histogram =
+        (String)
+            ManagementFactory.getPlatformMBeanServer()
+                .invoke(
+                    new ObjectName("com.sun.management:type=DiagnosticCommand"),
+                    "gcClassHistogram",
+                    new Object[] {null},
+                    new String[] {String[].class.getName()});
+    String[] lines = histogram.split("\n");
+    System.out.println(lines[0]);
+    System.out.println(lines[1]);
+    for (String line : lines) {
+      if (line.contains("immutable.")
+          || line.contains(" java.util.ArrayList ")
+          || line.contains(" java.lang.String ")
+          || line.contains(" [B ")
+          || line.contains(" [S ")
+          || line.contains(" [Ljava.lang.Object;")
+          || line.startsWith("Total")) {
+        System.out.println(line);
+      }
+    }
+  }
+
+  private static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
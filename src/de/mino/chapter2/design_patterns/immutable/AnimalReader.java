@@ -0,0 +1,113 @@
+package de.mino.chapter2.design_patterns.immutable;
+
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the animals written by an {@link AnimalWriter}, either from a ByteBuffer or from a
+ * (blocking) channel through an internal buffer that is reused.
+ *
+ * <p>{@link #next()} is the zero-copy mode: it returns a flyweight {@link AnimalView} over the
+ * buffer instead of creating objects. {@link #read()} creates a normal Animal for every record.
+ * Not thread safe.
+ */
+public class AnimalReader {
+
+  private final ReadableByteChannel channel;
+  private ByteBuffer buffer;
+  // Food id -> name, filled while reading in the same order the writer assigned the ids.
+  private final List<String> foods = new ArrayList<>();
+  private final AnimalView view = new AnimalView(foods);
+  private long records;
+
+  /** Reads from the channel. The buffer grows if a single record is bigger than bufferSize. */
+  public AnimalReader(ReadableByteChannel channel, int bufferSize) {
+    this.channel = channel;
+    this.buffer = ByteBuffer.allocateDirect(bufferSize);
+    // Nothing read yet.
+    this.buffer.flip();
+  }
+
+  public AnimalReader(ReadableByteChannel channel) {
+    this(channel, 64 * 1024);
+  }
+
+  /** Reads the records between the position and the limit of the buffer. */
+  public AnimalReader(ByteBuffer source) {
+    this.channel = null;
+    this.buffer = source;
+  }
+
+  /**
+   * Returns the next record as a view or null at the end of the data. The view is only valid until
+   * the next call.
+   */
+  public AnimalView next() throws IOException {
+    if (!ensure(1)) {
+      return null;
+    }
+    int length = 0;
+    int lengthSize = 0;
+    while (true) {
+      if (!ensure(lengthSize + 1)) {
+        throw new StreamCorruptedException("Data ends inside a record");
+      }
+      byte b = buffer.get(buffer.position() + lengthSize++);
+      length |= (b & 0x7F) << (7 * (lengthSize - 1));
+      if (b >= 0) {
+        break;
+      }
+      if (lengthSize == 5) {
+        throw new StreamCorruptedException("Invalid record length");
+      }
+    }
+    if (length < 0) {
+      throw new StreamCorruptedException("Invalid record length: " + length);
+    }
+    if (!ensure(lengthSize + length)) {
+      throw new StreamCorruptedException("Data ends inside a record");
+    }
+    int start = buffer.position() + lengthSize;
+    view.parse(buffer, start, start + length);
+    buffer.position(start + length);
+    records++;
+    return view;
+  }
+
+  /** Returns the next record as an Animal or null at the end of the data. */
+  public Animal read() throws IOException {
+    AnimalView next = next();
+    return next != null ? next.toAnimal() : null;
+  }
+
+  public long getRecordsRead() {
+    return records;
+  }
+
+  // Makes sure the buffer holds at least the given number of bytes. Returns false at the end of the
+  // data.
+  private boolean ensure(int bytes) throws IOException {
+    while (buffer.remaining() < bytes) {
+      if (channel == null) {
+        return false;
+      }
+      if (bytes > buffer.capacity()) {
+        ByteBuffer bigger = ByteBuffer.allocateDirect(Math.max(buffer.capacity() * 2, bytes));
+        bigger.put(buffer);
+        bigger.flip();
+        buffer = bigger;
+      }
+      buffer.compact();
+      int read = channel.read(buffer);
+      buffer.flip();
+      if (read < 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,42 @@
+package de.mino.chapter2.design_patterns.immutable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Adds favorite foods one after another, creating a new immutable {@link Animal} for every single
+ * update. Compares the defensive-copy way (copy the list, add, call the constructor which copies
+ * again) with {@link Animal#withFavoriteFood(String)}.
+ *
+ * <p>Usage: {@code AnimalUpdateBenchmark [maxUpdates]}
+ */
+public class AnimalUpdateBenchmark {
+
+  public static void main(String[] args) {
+    int maxUpdates = args.length > 0 ? Integer.parseInt(args[0]) : 40_000;
+
+    System.out.println("updates\tdefensive copy ms\twither ms");
+    for (int updates = 2_500; updates <= maxUpdates; updates *= 2) {
+      long start = System.nanoTime();
+      Animal copied = new Animal("lion", 5, new ArrayList<>());
+      for (int i = 0; i < updates; i++) {
+        List<String> foods = copied.getFavoriteFoods();
+        foods.add("food " + (i & 15));
+        copied = new Animal(copied.getSpecies(), copied.getAge(), foods);
+      }
+      long copyTime = System.nanoTime() - start;
+
+      start = System.nanoTime();
+      Animal persistent = new Animal("lion", 5, new ArrayList<>());
+      for (int i = 0; i < updates; i++) {
+        persistent = persistent.withFavoriteFood("food " + (i & 15));
+      }
+      long witherTime = System.nanoTime() - start;
+
+      if (!copied.getFavoriteFoods().equals(persistent.getFavoriteFoods())) {
+        throw new IllegalStateException("Both ways should give the same favorite foods");
+      }
+      System.out.printf("%d\t%.1f\t\t\t%.1f%n", updates, copyTime / 1e6, witherTime / 1e6);
+    }
+  }
+}
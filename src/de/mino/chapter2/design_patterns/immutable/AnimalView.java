@@ -0,0 +1,169 @@
+package de.mino.chapter2.design_patterns.immutable;
+
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * One record of an {@link AnimalReader}, read directly from the reader's buffer (flyweight). The
+ * species is not turned into a String unless {@link #getSpecies()} is called, the favorite foods
+ * are the Strings of the reader's dictionary. So reading a record doesn't allocate anything.
+ *
+ * <p>The reader reuses the same view for every record: it is only valid until the next call to
+ * {@link AnimalReader#next()}. Use {@link #toAnimal()} to keep an animal.
+ */
+public final class AnimalView {
+
+  private final List<String> foods;
+  private ByteBuffer buffer;
+  private int cursor;
+  private int end;
+
+  private int age;
+  private int speciesOffset;
+  private int speciesLength;
+  private int foodCount;
+  private int[] foodIds = new int[8];
+
+  AnimalView(List<String> foods) {
+    this.foods = foods;
+  }
+
+  // Reads the record between start and end. New foods are added to the dictionary.
+  void parse(ByteBuffer buffer, int start, int end) throws StreamCorruptedException {
+    this.buffer = buffer;
+    this.cursor = start;
+    this.end = end;
+    int zigzag = readVarint();
+    age = (zigzag >>> 1) ^ -(zigzag & 1);
+    speciesLength = readVarint();
+    speciesOffset = cursor;
+    skip(speciesLength);
+    foodCount = readVarint();
+    if (foodCount > end - cursor) {
+      // Every food needs at least one byte.
+      throw new StreamCorruptedException("Invalid number of foods: " + foodCount);
+    }
+    if (foodCount > foodIds.length) {
+      foodIds = Arrays.copyOf(foodIds, Math.max(foodCount, foodIds.length * 2));
+    }
+    for (int i = 0; i < foodCount; i++) {
+      int tag = readVarint();
+      if ((tag & 1) == 0) {
+        int id = tag >>> 1;
+        if (id >= foods.size()) {
+          throw new StreamCorruptedException("Unknown food id: " + id);
+        }
+        foodIds[i] = id;
+      } else {
+        int length = tag >>> 1;
+        int offset = cursor;
+        skip(length);
+        foodIds[i] = foods.size();
+        foods.add(decode(offset, length));
+      }
+    }
+    if (cursor != end) {
+      throw new StreamCorruptedException("Record has " + (end - cursor) + " extra bytes");
+    }
+  }
+
+  public int getAge() {
+    return age;
+  }
+
+  /** Decodes the species, this creates a new String. */
+  public String getSpecies() {
+    return decode(speciesOffset, speciesLength);
+  }
+
+  /** Compares the species without creating a String. */
+  public boolean speciesEquals(String species) {
+    if (species.length() != speciesLength) {
+      // For ASCII the lengths must match. Otherwise compare the decoded String.
+      return !isAscii(species) && getSpecies().equals(species);
+    }
+    for (int i = 0; i < speciesLength; i++) {
+      char c = species.charAt(i);
+      if (c >= 0x80) {
+        return getSpecies().equals(species);
+      }
+      if (buffer.get(speciesOffset + i) != (byte) c) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public int getFavoriteFoodsCount() {
+    return foodCount;
+  }
+
+  public String getFavoriteFood(int index) {
+    return foods.get(getFavoriteFoodId(index));
+  }
+
+  /** The id of the food in this stream, the same food always has the same id. */
+  public int getFavoriteFoodId(int index) {
+    if (index < 0 || index >= foodCount) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + foodCount);
+    }
+    return foodIds[index];
+  }
+
+  /** Copies the record into a real (immutable) Animal. */
+  public Animal toAnimal() {
+    List<String> favoriteFoods = new ArrayList<>(foodCount);
+    for (int i = 0; i < foodCount; i++) {
+      favoriteFoods.add(foods.get(foodIds[i]));
+    }
+    return new Animal(getSpecies(), age, favoriteFoods);
+  }
+
+  @Override
+  public String toString() {
+    return toAnimal().toString();
+  }
+
+  private int readVarint() throws StreamCorruptedException {
+    int value = 0;
+    for (int shift = 0; shift < 35; shift += 7) {
+      if (cursor >= end) {
+        throw new StreamCorruptedException("Record ends inside a number");
+      }
+      byte b = buffer.get(cursor++);
+      value |= (b & 0x7F) << shift;
+      if (b >= 0) {
+        return value;
+      }
+    }
+    throw new StreamCorruptedException("Invalid varint");
+  }
+
+  private void skip(int length) throws StreamCorruptedException {
+    if (length < 0 || length > end - cursor) {
+      throw new StreamCorruptedException("Invalid length: " + length);
+    }
+    cursor += length;
+  }
+
+  private String decode(int offset, int length) {
+    byte[] bytes = new byte[length];
+    for (int i = 0; i < length; i++) {
+      bytes[i] = buffer.get(offset + i);
+    }
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static boolean isAscii(String value) {
+    for (int i = 0; i < value.length(); i++) {
+      if (value.charAt(i) >= 0x80) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
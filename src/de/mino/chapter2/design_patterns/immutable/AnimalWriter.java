@@ -0,0 +1,197 @@
+package de.mino.chapter2.design_patterns.immutable;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes animals in a compact binary format, to be read again with {@link AnimalReader}.
+ *
+ * <p>Every record starts with its length, so a reader can skip it or check it is complete:
+ *
+ * <pre>
+ * record  = length body                     length = varint, number of bytes of the body
+ * body    = age species count food*         age = zigzag varint, count = varint
+ * species = varint byte-length, UTF-8 bytes
+ * food    = varint (id &lt;&lt; 1)               a food that was already written in this stream
+ *         | varint (length &lt;&lt; 1 | 1) UTF-8 a new food, it gets the next id
+ * </pre>
+ *
+ * <p>A varint stores 7 bits per byte, the highest bit says whether another byte follows. Small
+ * numbers like an age or a food id need only one byte. Foods are dictionary coded: the name is
+ * written the first time it occurs in the stream, after that only its id.
+ *
+ * <p>The writer either fills a given ByteBuffer or writes to a channel through an internal buffer
+ * that is reused. Writing ASCII names doesn't allocate. Not thread safe.
+ */
+public class AnimalWriter implements AutoCloseable {
+
+  private final WritableByteChannel channel;
+  private ByteBuffer buffer;
+  // The body is encoded here first, because its length has to be written in front of it.
+  private ByteBuffer body = ByteBuffer.allocate(256);
+  private final Map<String, Integer> foodIds = new HashMap<>();
+  // Foods that got their id in the current record. Removed again if the record can't be written.
+  private final List<String> newFoods = new ArrayList<>();
+  private long records;
+
+  /** Writes to the channel, buffering up to bufferSize bytes. */
+  public AnimalWriter(WritableByteChannel channel, int bufferSize) {
+    this.channel = channel;
+    this.buffer = ByteBuffer.allocateDirect(bufferSize);
+  }
+
+  public AnimalWriter(WritableByteChannel channel) {
+    this(channel, 64 * 1024);
+  }
+
+  /**
+   * Writes into the given buffer, starting at its position. When the buffer is full, {@link
+   * #write} throws a BufferOverflowException and the buffer is left unchanged.
+   */
+  public AnimalWriter(ByteBuffer target) {
+    this.channel = null;
+    this.buffer = target;
+  }
+
+  public void write(Animal animal) throws IOException {
+    body.clear();
+    newFoods.clear();
+    putVarint(zigzag(animal.getAge()));
+    putString(animal.getSpecies());
+    int count = animal.getFavoriteFoodsCount();
+    putVarint(count);
+    for (int i = 0; i < count; i++) {
+      putFood(animal.getFavoriteFood(i));
+    }
+    body.flip();
+
+    int needed = varintSize(body.remaining()) + body.remaining();
+    if (buffer.remaining() < needed) {
+      if (channel == null) {
+        newFoods.forEach(foodIds::remove);
+        throw new BufferOverflowException();
+      }
+      flush();
+      if (buffer.remaining() < needed) {
+        // A single record is bigger than the whole buffer.
+        buffer = ByteBuffer.allocateDirect(needed);
+      }
+    }
+    putVarint(buffer, body.remaining());
+    buffer.put(body);
+    records++;
+  }
+
+  public long getRecordsWritten() {
+    return records;
+  }
+
+  /** Writes the buffered records to the channel. Does nothing when writing into a ByteBuffer. */
+  public void flush() throws IOException {
+    if (channel == null) {
+      return;
+    }
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  /** Flushes, the channel itself is not closed. */
+  @Override
+  public void close() throws IOException {
+    flush();
+  }
+
+  private void putFood(String food) {
+    Integer id = foodIds.get(food);
+    if (id != null) {
+      putVarint(id << 1);
+      return;
+    }
+    foodIds.put(food, foodIds.size());
+    newFoods.add(food);
+    int start = body.position();
+    if (putAscii(food, 1)) {
+      return;
+    }
+    body.position(start);
+    byte[] bytes = food.getBytes(StandardCharsets.UTF_8);
+    putVarint(bytes.length << 1 | 1);
+    ensureBody(bytes.length);
+    body.put(bytes);
+  }
+
+  private void putString(String value) {
+    int start = body.position();
+    if (!putAscii(value, 0)) {
+      body.position(start);
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      putVarint(bytes.length);
+      ensureBody(bytes.length);
+      body.put(bytes);
+    }
+  }
+
+  // Fast path without a byte[] copy: for ASCII the UTF-8 bytes are the chars. Returns false (and
+  // leaves garbage behind the start position) if there is a non ASCII char.
+  private boolean putAscii(String value, int flag) {
+    int length = value.length();
+    putVarint(length << flag | flag);
+    ensureBody(length);
+    for (int i = 0; i < length; i++) {
+      char c = value.charAt(i);
+      if (c >= 0x80) {
+        return false;
+      }
+      body.put((byte) c);
+    }
+    return true;
+  }
+
+  private void putVarint(int value) {
+    ensureBody(5);
+    putVarint(body, value);
+  }
+
+  private void ensureBody(int bytes) {
+    if (body.remaining() < bytes) {
+      ByteBuffer bigger =
+          ByteBuffer.allocate(Math.max(body.capacity() * 2, body.position() + bytes));
+      body.flip();
+      bigger.put(body);
+      body = bigger;
+    }
+  }
+
+  static void putVarint(ByteBuffer target, int value) {
+    while ((value & ~0x7F) != 0) {
+      target.put((byte) (value & 0x7F | 0x80));
+      value >>>= 7;
+    }
+    target.put((byte) value);
+  }
+
+  static int varintSize(int value) {
+    int size = 1;
+    while ((value & ~0x7F) != 0) {
+      value >>>= 7;
+      size++;
+    }
+    return size;
+  }
+
+  // Maps small negative numbers to small positive ones (0, -1, 1, -2 -> 0, 1, 2, 3), so they stay
+  // short as a varint.
+  static int zigzag(int value) {
+    return (value << 1) ^ (value >> 31);
+  }
+}
@@ -0,0 +1,84 @@
+package de.mino.chapter2.design_patterns.immutable;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Memory saving version of the immutable {@link Animal}. The favorite foods are not copied into an
+ * ArrayList of Strings per animal. Every food name is stored once in the global {@link
+ * FoodDictionary} and the animal only keeps a small array with the codes of its foods.
+ */
+public final class CompactAnimal {
+
+  private static final short[] NO_FOODS = new short[0];
+
+  private final String species;
+  private final int age;
+  // Codes from the FoodDictionary, read as unsigned values. Never exposed, so it can't be changed.
+  private final short[] favoriteFoods;
+
+  public CompactAnimal(String species, int age, List<String> favoriteFoods) {
+    this.species = species;
+    this.age = age;
+    if (favoriteFoods.isEmpty()) {
+      this.favoriteFoods = NO_FOODS;
+    } else {
+      this.favoriteFoods = new short[favoriteFoods.size()];
+      for (int i = 0; i < this.favoriteFoods.length; i++) {
+        this.favoriteFoods[i] = (short) FoodDictionary.codeOf(favoriteFoods.get(i));
+      }
+    }
+  }
+
+  public static CompactAnimal of(Animal animal) {
+    return new CompactAnimal(animal.getSpecies(), animal.getAge(), animal.getFavoriteFoods());
+  }
+
+  public String getSpecies() {
+    return species;
+  }
+
+  public int getAge() {
+    return age;
+  }
+
+  public int getFavoriteFoodsCount() {
+    return favoriteFoods.length;
+  }
+
+  public String getFavoriteFood(int index) {
+    return FoodDictionary.nameOf(favoriteFoods[index] & 0xFFFF);
+  }
+
+  // Unlike Animal we don't have to copy: the view can't be modified (AbstractList throws an
+  // UnsupportedOperationException for add, set and remove) and the codes array never changes.
+  public List<String> getFavoriteFoods() {
+    return new FavoriteFoodsView();
+  }
+
+  private final class FavoriteFoodsView extends AbstractList<String> implements RandomAccess {
+    @Override
+    public String get(int index) {
+      return getFavoriteFood(index);
+    }
+
+    @Override
+    public int size() {
+      return favoriteFoods.length;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "CompactAnimal{"
+        + "species='"
+        + species
+        + '\''
+        + ", age="
+        + age
+        + ", favoriteFoods="
+        + getFavoriteFoods()
+        + '}';
+  }
+}
@@ -0,0 +1,52 @@
+package de.mino.chapter2.design_patterns.immutable;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Global dictionary of food names. Every distinct name is stored once and gets a small number
+ * (code). Objects that reference the same food only store the code instead of their own String.
+ * Codes are never removed, so a code stays valid for the lifetime of the application.
+ */
+final class FoodDictionary {
+
+  // Codes are stored in short arrays, read as unsigned values.
+  static final int MAX_CODES = 1 << 16;
+
+  private static final ConcurrentMap<String, Integer> codes = new ConcurrentHashMap<>();
+  // Readers don't lock. A new array is only published (volatile) once the new name is in it.
+  private static volatile String[] names = new String[16];
+  private static int size;
+
+  private FoodDictionary() {}
+
+  static int codeOf(String food) {
+    Integer code = codes.get(food);
+    return code != null ? code : add(food);
+  }
+
+  static String nameOf(int code) {
+    return names[code];
+  }
+
+  private static synchronized int add(String food) {
+    Integer existing = codes.get(food);
+    if (existing != null) {
+      return existing;
+    }
+    if (size == MAX_CODES) {
+      throw new IllegalStateException("Too many different foods");
+    }
+    String[] current = names;
+    if (size == current.length) {
+      current = Arrays.copyOf(current, current.length * 2);
+    }
+    int code = size++;
+    current[code] = food;
+    names = current;
+    // Only now other threads can find the code, and the name is already readable.
+    codes.put(food, code);
+    return code;
+  }
+}
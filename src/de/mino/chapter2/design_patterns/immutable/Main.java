@@ -16,5 +16,9 @@ public class Main {
 
     System.out.println(lion);
     System.out.println(updatedLion);
+
+    // The same with the "with" methods. Each call returns a new immutable Animal.
+    Animal olderLion = lion.withAge(lion.getAge() + 1).withFavoriteFood("even more meat");
+    System.out.println(olderLion);
   }
 }
@@ -0,0 +1,152 @@
+package de.mino.chapter2.design_patterns.immutable;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Immutable list with cheap "modified copies" (a persistent vector, like the one in Clojure).
+ *
+ * <p>The elements are stored in a tree where every node holds up to 32 children, plus a separate
+ * array for the last (up to 32) elements, the tail. Appending creates a new vector that shares
+ * almost everything with the old one: only the tail, or the nodes on the path to the new element,
+ * are copied. That is at most log32(n) small arrays instead of copying the whole list. The old
+ * vector stays unchanged, so both can be used (and shared between threads) safely.
+ *
+ * <p>Being an AbstractList, all modifying List methods throw an UnsupportedOperationException.
+ */
+final class PersistentVector<E> extends AbstractList<E> implements RandomAccess {
+
+  private static final int BITS = 5;
+  private static final int WIDTH = 1 << BITS;
+  private static final int MASK = WIDTH - 1;
+
+  private static final Object[] EMPTY_NODE = new Object[WIDTH];
+  private static final PersistentVector<?> EMPTY =
+      new PersistentVector<>(0, BITS, EMPTY_NODE, new Object[0]);
+
+  private final int size;
+  // How many bits of the index the root level uses. Grows by BITS when the tree gets a new level.
+  private final int shift;
+  private final Object[] root;
+  private final Object[] tail;
+
+  private PersistentVector(int size, int shift, Object[] root, Object[] tail) {
+    this.size = size;
+    this.shift = shift;
+    this.root = root;
+    this.tail = tail;
+  }
+
+  @SuppressWarnings("unchecked")
+  static <E> PersistentVector<E> empty() {
+    return (PersistentVector<E>) EMPTY;
+  }
+
+  // Builds the tree in one go instead of appending one by one, so copying a list stays O(n).
+  static <E> PersistentVector<E> copyOf(List<? extends E> elements) {
+    Object[] all = elements.toArray();
+    int size = all.length;
+    if (size == 0) {
+      return empty();
+    }
+    int tailOffset = size < WIDTH ? 0 : ((size - 1) >>> BITS) << BITS;
+    Object[] tail = Arrays.copyOfRange(all, tailOffset, size);
+
+    // The full blocks of 32 before the tail are the leaves. Group them into parents of 32 until a
+    // single root node is left, the same shape append() would have built.
+    Object[][] nodes = new Object[tailOffset >>> BITS][];
+    for (int i = 0; i < nodes.length; i++) {
+      nodes[i] = Arrays.copyOfRange(all, i << BITS, (i + 1) << BITS);
+    }
+    int shift = BITS;
+    while (nodes.length > WIDTH) {
+      nodes = group(nodes);
+      shift += BITS;
+    }
+    Object[] root = nodes.length == 0 ? EMPTY_NODE : group(nodes)[0];
+    return new PersistentVector<>(size, shift, root, tail);
+  }
+
+  private static Object[][] group(Object[][] children) {
+    Object[][] parents = new Object[(children.length + WIDTH - 1) >>> BITS][WIDTH];
+    for (int i = 0; i < children.length; i++) {
+      parents[i >>> BITS][i & MASK] = children[i];
+    }
+    return parents;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public E get(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+    if (index >= tailOffset()) {
+      return (E) tail[index & MASK];
+    }
+    Object[] node = root;
+    for (int level = shift; level > 0; level -= BITS) {
+      node = (Object[]) node[(index >>> level) & MASK];
+    }
+    return (E) node[index & MASK];
+  }
+
+  /** Returns a new vector with the element added at the end. This vector doesn't change. */
+  PersistentVector<E> append(E element) {
+    // Room in the tail: only the tail is copied.
+    if (size - tailOffset() < WIDTH) {
+      Object[] newTail = Arrays.copyOf(tail, tail.length + 1);
+      newTail[tail.length] = element;
+      return new PersistentVector<>(size + 1, shift, root, newTail);
+    }
+    // The tail is full: it moves into the tree and a new tail is started.
+    Object[] newRoot;
+    int newShift = shift;
+    if ((size >>> BITS) > (1 << shift)) {
+      // The tree is full as well, so it gets a new root level.
+      newRoot = new Object[WIDTH];
+      newRoot[0] = root;
+      newRoot[1] = newPath(shift, tail);
+      newShift += BITS;
+    } else {
+      newRoot = pushTail(shift, root, tail);
+    }
+    return new PersistentVector<>(size + 1, newShift, newRoot, new Object[] {element});
+  }
+
+  private int tailOffset() {
+    return size < WIDTH ? 0 : ((size - 1) >>> BITS) << BITS;
+  }
+
+  // Copies the path from 'parent' down to where the full tail belongs and hangs the tail in there.
+  private Object[] pushTail(int level, Object[] parent, Object[] tailNode) {
+    int index = ((size - 1) >>> level) & MASK;
+    Object[] copy = parent.clone();
+    Object[] toInsert;
+    if (level == BITS) {
+      toInsert = tailNode;
+    } else {
+      Object[] child = (Object[]) parent[index];
+      toInsert =
+          child != null ? pushTail(level - BITS, child, tailNode) : newPath(level - BITS, tailNode);
+    }
+    copy[index] = toInsert;
+    return copy;
+  }
+
+  private static Object[] newPath(int level, Object[] node) {
+    if (level == 0) {
+      return node;
+    }
+    Object[] path = new Object[WIDTH];
+    path[0] = newPath(level - BITS, node);
+    return path;
+  }
+}
@@ -0,0 +1,231 @@
+package de.mino.chapter2.design_patterns.singleton;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Sliding window of admissions for the last minute. The window is a ring of one-second buckets,
+ * the bucket of the current second is reused for a new second once the ring wrapped around. That
+ * way the memory stays the same no matter how long the tracker runs.
+ *
+ * <p>Turnstile threads only do atomic updates (no locks) and readers take a {@link Snapshot}
+ * without blocking the writers. The numbers are therefore approximate: an admission happening while
+ * a bucket is recycled can get lost, which doesn't matter for live statistics.
+ *
+ * <p>Inter-arrival times are measured per turnstile (thread): the time since the previous admission
+ * of the same thread. A single "last admission" shared by all threads would be one more word every
+ * turnstile writes for every visitor.
+ */
+public class AdmissionRateWindow {
+
+  // 64 buckets so a bucket can be picked with a bit mask. Only the last 60 full seconds are read,
+  // the rest is a safety margin so writers of the current second never touch a bucket being read.
+  private static final int BUCKETS = 64;
+  private static final int WINDOW_SECONDS = 60;
+  private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+  // Each bucket packs the second it belongs to (upper 40 bits) and the count (lower 24 bits) into
+  // one long, so both can be updated with a single compareAndSet.
+  private static final int COUNT_BITS = 24;
+  private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+
+  // Inter-arrival times are recorded in a log-scale histogram: 4 slots per power of two, which
+  // gives roughly 25% precision for any duration between 1 ns and several hours.
+  private static final int SUB_BITS = 2;
+  private static final int SLOTS = 64 << SUB_BITS;
+
+  // Values of histogramSeconds besides a second.
+  private static final long UNUSED = -1;
+  private static final long CLEARING = -2;
+
+  private final LongSupplier nanoClock;
+  private final long origin;
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+  private final AtomicLongArray histogramSeconds = new AtomicLongArray(BUCKETS);
+  private final AtomicLongArray histograms = new AtomicLongArray(BUCKETS * SLOTS);
+  // [0] = time of the last admission of this thread
+  private final ThreadLocal<long[]> lastArrival =
+      ThreadLocal.withInitial(() -> new long[] {Long.MIN_VALUE});
+
+  public AdmissionRateWindow() {
+    this(System::nanoTime);
+  }
+
+  // The clock can be replaced, e.g. to simulate time in a demo.
+  AdmissionRateWindow(LongSupplier nanoClock) {
+    this.nanoClock = nanoClock;
+    this.origin = nanoClock.getAsLong();
+    // Second 0 is a valid second, so mark all histogram rows as "never used".
+    for (int i = 0; i < BUCKETS; i++) {
+      histogramSeconds.set(i, UNUSED);
+    }
+  }
+
+  /** Records one admission. Called by the turnstile threads. */
+  public void record() {
+    long now = nanoClock.getAsLong();
+    long second = (now - origin) / NANOS_PER_SECOND;
+    int bucket = (int) (second & (BUCKETS - 1));
+
+    while (true) {
+      long packed = counts.get(bucket);
+      long count = packed >>> COUNT_BITS == second ? packed & COUNT_MASK : 0;
+      if (count == COUNT_MASK) {
+        break; // More than 16 million admissions in one second. Stop counting.
+      }
+      if (counts.compareAndSet(bucket, packed, second << COUNT_BITS | (count + 1))) {
+        break;
+      }
+    }
+
+    long[] last = lastArrival.get();
+    long previous = last[0];
+    last[0] = now;
+    if (previous != Long.MIN_VALUE) {
+      long rowSecond = histogramSeconds.get(bucket);
+      if (rowSecond != second) {
+        // The first writer of a new second claims the row: only the thread whose CAS from the old
+        // second to CLEARING succeeds clears the old counts and then publishes the new second. While
+        // the row is CLEARING, other writers skip it (the sample is lost) and readers ignore it, so
+        // nobody counts into a row that is about to be cleared or reads it half cleared.
+        if (rowSecond == CLEARING
+            || rowSecond > second
+            || !histogramSeconds.compareAndSet(bucket, rowSecond, CLEARING)) {
+          return;
+        }
+        for (int slot = 0; slot < SLOTS; slot++) {
+          histograms.set(bucket * SLOTS + slot, 0);
+        }
+        histogramSeconds.set(bucket, second);
+      }
+      histograms.incrementAndGet(bucket * SLOTS + slot(Math.max(0, now - previous)));
+    }
+  }
+
+  /** Takes a consistent enough view of the last minute. Never blocks the writers. */
+  public Snapshot snapshot() {
+    long currentSecond = (nanoClock.getAsLong() - origin) / NANOS_PER_SECOND;
+    long lastSecond = 0;
+    long lastMinute = 0;
+    long[] histogram = new long[SLOTS];
+    long samples = 0;
+
+    // Only completed seconds are used, the current one is still being filled.
+    for (long second = currentSecond - WINDOW_SECONDS; second < currentSecond; second++) {
+      if (second < 0) {
+        continue;
+      }
+      int bucket = (int) (second & (BUCKETS - 1));
+      long packed = counts.get(bucket);
+      if (packed >>> COUNT_BITS == second) {
+        long count = packed & COUNT_MASK;
+        lastMinute += count;
+        if (second == currentSecond - 1) {
+          lastSecond = count;
+        }
+      }
+      if (histogramSeconds.get(bucket) == second) {
+        for (int slot = 0; slot < SLOTS; slot++) {
+          long value = histograms.get(bucket * SLOTS + slot);
+          histogram[slot] += value;
+          samples += value;
+        }
+      }
+    }
+
+    return new Snapshot(
+        lastSecond,
+        lastMinute,
+        percentile(histogram, samples, 0.50),
+        percentile(histogram, samples, 0.99));
+  }
+
+  private static int slot(long nanos) {
+    if (nanos < (1 << SUB_BITS)) {
+      return (int) nanos;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+    int sub = (int) (nanos >>> (exponent - SUB_BITS)) & ((1 << SUB_BITS) - 1);
+    return exponent << SUB_BITS | sub;
+  }
+
+  // Middle of the value range that falls into a slot.
+  private static long slotValue(int slot) {
+    if (slot < (1 << SUB_BITS)) {
+      return slot;
+    }
+    int exponent = slot >>> SUB_BITS;
+    long lower = (long) ((1 << SUB_BITS) | (slot & ((1 << SUB_BITS) - 1))) << (exponent - SUB_BITS);
+    return lower + (1L << (exponent - SUB_BITS)) / 2;
+  }
+
+  private static long percentile(long[] histogram, long samples, double percentile) {
+    if (samples == 0) {
+      return -1;
+    }
+    long rank = (long) Math.ceil(samples * percentile);
+    long seen = 0;
+    for (int slot = 0; slot < SLOTS; slot++) {
+      seen += histogram[slot];
+      if (seen >= rank) {
+        return slotValue(slot);
+      }
+    }
+    return slotValue(SLOTS - 1);
+  }
+
+  /** Immutable view of the admission rates at the time it was taken. */
+  public static final class Snapshot {
+    private final long lastSecond;
+    private final long lastMinute;
+    private final long p50InterArrivalNanos;
+    private final long p99InterArrivalNanos;
+
+    private Snapshot(
+        long lastSecond, long lastMinute, long p50InterArrivalNanos, long p99InterArrivalNanos) {
+      this.lastSecond = lastSecond;
+      this.lastMinute = lastMinute;
+      this.p50InterArrivalNanos = p50InterArrivalNanos;
+      this.p99InterArrivalNanos = p99InterArrivalNanos;
+    }
+
+    // Admissions during the last completed second.
+    public long getAdmissionsLastSecond() {
+      return lastSecond;
+    }
+
+    // Admissions during the last 60 completed seconds.
+    public long getAdmissionsLastMinute() {
+      return lastMinute;
+    }
+
+    // Average admissions per second over the last minute.
+    public double getAdmissionsPerSecond() {
+      return lastMinute / (double) WINDOW_SECONDS;
+    }
+
+    // Median time between two admissions at the same turnstile in the last minute, -1 if there were
+    // none.
+    public long getP50InterArrivalNanos() {
+      return p50InterArrivalNanos;
+    }
+
+    public long getP99InterArrivalNanos() {
+      return p99InterArrivalNanos;
+    }
+
+    @Override
+    public String toString() {
+      return "Snapshot{"
+          + "lastSecond="
+          + lastSecond
+          + ", lastMinute="
+          + lastMinute
+          + ", p50InterArrivalNanos="
+          + p50InterArrivalNanos
+          + ", p99InterArrivalNanos="
+          + p99InterArrivalNanos
+          + '}';
+    }
+  }
+}
@@ -0,0 +1,75 @@
+package de.mino.chapter2.design_patterns.singleton;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free variant of the {@link HayStorage} singleton. Instead of guarding every method with the
+ * same monitor, the quantity lives in an {@link AtomicInteger} and is updated with compare-and-set
+ * (CAS) loops. Threads never block each other, they just retry when another thread changed the
+ * value in the meantime.
+ */
+public class AtomicHayStorage implements HayDepot {
+
+  private final AtomicInteger quantity = new AtomicInteger();
+  // Counts how often a CAS lost against another thread and had to be repeated. A LongAdder is used
+  // so that counting the contention doesn't become a new point of contention itself.
+  private final LongAdder retries = new LongAdder();
+
+  private AtomicHayStorage() {}
+
+  private static final AtomicHayStorage instance = new AtomicHayStorage();
+
+  public static AtomicHayStorage getInstance() {
+    return instance;
+  }
+
+  // Adding can never fail, so a single atomic increment is enough. No loop needed.
+  @Override
+  public void addHay(int amount) {
+    quantity.addAndGet(amount);
+  }
+
+  // Check-and-withdraw has to happen as one atomic step. We read the current value, refuse if there
+  // is not enough hay and otherwise try to swap in the reduced value. If another thread changed the
+  // quantity between our read and the compareAndSet(), the CAS fails and we simply try again with
+  // the fresh value. That way the quantity can never become negative.
+  @Override
+  public boolean removeHay(int amount) {
+    while (true) {
+      int current = quantity.get();
+      if (current < amount) {
+        return false;
+      }
+      if (quantity.compareAndSet(current, current - amount)) {
+        return true;
+      }
+      retries.increment();
+    }
+  }
+
+  // Same idea as removeHay(), but if there isn't enough hay the restock is folded into the same CAS.
+  // Either the whole "restock if needed, then withdraw" step is applied or nothing is.
+  public boolean restockAndRemoveHay(int amount, int restockAmount) {
+    while (true) {
+      int current = quantity.get();
+      int available = current < amount ? current + restockAmount : current;
+      if (available < amount) {
+        return false;
+      }
+      if (quantity.compareAndSet(current, available - amount)) {
+        return true;
+      }
+      retries.increment();
+    }
+  }
+
+  @Override
+  public int getHayQuantity() {
+    return quantity.get();
+  }
+
+  public long getRetries() {
+    return retries.sum();
+  }
+}
@@ -0,0 +1,162 @@
+package de.mino.chapter2.design_patterns.singleton;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Batching front-end for feeding llamas (group commit). Instead of every trainer going to the
+ * {@link HayStorage} and to System.out on its own, the feeding requests are put into a queue. A
+ * single background thread collects the requests that arrive within a short time window, takes the
+ * hay for all of them with one withdrawal and then completes the future of every caller.
+ *
+ * <p>The window closes as soon as either {@code maxBatchSize} requests are collected or the oldest
+ * request waited {@code maxLatency}. So a bigger batch gives more throughput, a smaller latency
+ * bound keeps the callers waiting less.
+ */
+public class BatchingLlamaTrainer implements AutoCloseable {
+
+  private static final class FeedingRequest {
+    private final int amountNeeded;
+    // The latency bound counts from here, not from when the worker gets to the request.
+    private final long enqueuedNanos = System.nanoTime();
+    private final CompletableFuture<Boolean> result = new CompletableFuture<>();
+
+    private FeedingRequest(int amountNeeded) {
+      this.amountNeeded = amountNeeded;
+    }
+  }
+
+  private final int maxBatchSize;
+  private final long maxLatencyNanos;
+  private final BlockingQueue<FeedingRequest> requests = new LinkedBlockingQueue<>();
+  private final Thread worker;
+  private final LongAdder batches = new LongAdder();
+  private volatile boolean closed;
+
+  public BatchingLlamaTrainer(int maxBatchSize, long maxLatency, TimeUnit unit) {
+    if (maxBatchSize < 1) {
+      throw new IllegalArgumentException("Batch size must be at least 1");
+    }
+    this.maxBatchSize = maxBatchSize;
+    this.maxLatencyNanos = unit.toNanos(maxLatency);
+    this.worker = new Thread(this::processBatches, "llama-feeding-batcher");
+    // A daemon thread doesn't keep the JVM alive if someone forgets to call close().
+    this.worker.setDaemon(true);
+    this.worker.start();
+  }
+
+  // Returns immediately. The future completes with true once the llamas have been fed.
+  public CompletableFuture<Boolean> feedLlamas(int numberOfLlamas) {
+    if (closed) {
+      throw new IllegalStateException("Trainer is closed");
+    }
+    FeedingRequest request = new FeedingRequest(5 * numberOfLlamas);
+    requests.add(request);
+    // close() might have run between the check above and add(), and its last look into the queue
+    // might already be over. Then nobody would ever complete the request. If it is still in the
+    // queue we take it back out ourselves. If it's gone, the worker or close() has it and completes
+    // it.
+    if (closed && requests.remove(request)) {
+      throw new IllegalStateException("Trainer is closed");
+    }
+    return request.result;
+  }
+
+  public long getBatches() {
+    return batches.sum();
+  }
+
+  private void processBatches() {
+    List<FeedingRequest> batch = new ArrayList<>(maxBatchSize);
+    try {
+      while (!closed || !requests.isEmpty()) {
+        FeedingRequest first = requests.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null) {
+          continue;
+        }
+        batch.add(first);
+        // Keep collecting until the batch is full or the first request waited long enough. The
+        // time it spent in the queue already counts.
+        long deadline = first.enqueuedNanos + maxLatencyNanos;
+        while (batch.size() < maxBatchSize) {
+          long remaining = deadline - System.nanoTime();
+          FeedingRequest next =
+              remaining > 0 ? requests.poll(remaining, TimeUnit.NANOSECONDS) : requests.poll();
+          if (next == null) {
+            break;
+          }
+          batch.add(next);
+        }
+        apply(batch);
+        batch.clear();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    // Nobody will process these anymore, so don't leave the callers waiting forever.
+    batch.addAll(requests);
+    for (FeedingRequest request : batch) {
+      request.result.completeExceptionally(new IllegalStateException("Trainer is closed"));
+    }
+  }
+
+  private void apply(List<FeedingRequest> batch) {
+    int total = 0;
+    for (FeedingRequest request : batch) {
+      total += request.amountNeeded;
+    }
+    HayStorage hayStorage = HayStorage.getInstance();
+    // One combined withdrawal for the whole batch. Only if that fails we fall back to the single
+    // requests, so every caller still gets its own result.
+    if (hayStorage.restockAndRemoveHay(total, total + 10)) {
+      for (FeedingRequest request : batch) {
+        request.result.complete(true);
+      }
+    } else {
+      total = 0;
+      for (FeedingRequest request : batch) {
+        boolean fed =
+            hayStorage.restockAndRemoveHay(request.amountNeeded, request.amountNeeded + 10);
+        if (fed) {
+          total += request.amountNeeded;
+        }
+        request.result.complete(fed);
+      }
+    }
+    batches.increment();
+    // One line per batch instead of one per feeding.
+    System.out.println(batch.size() + " feedings done with " + total + " hay");
+  }
+
+  // Processes everything that is already queued and then stops the background thread.
+  @Override
+  public void close() {
+    closed = true;
+    try {
+      worker.join();
+    } catch (InterruptedException e) {
+      // We stop waiting but keep the interrupt for the caller. The worker still works through the
+      // queue and fails whatever is left when it is done.
+      Thread.currentThread().interrupt();
+      return;
+    }
+    // A request might have slipped in while the worker was shutting down.
+    FeedingRequest request;
+    while ((request = requests.poll()) != null) {
+      request.result.completeExceptionally(new IllegalStateException("Trainer is closed"));
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    try (BatchingLlamaTrainer trainer = new BatchingLlamaTrainer(64, 1, TimeUnit.MILLISECONDS)) {
+      CompletableFuture<Boolean> first = trainer.feedLlamas(3);
+      CompletableFuture<Boolean> second = trainer.feedLlamas(2);
+      System.out.println("Fed: " + first.get() + ", " + second.get());
+    }
+  }
+}
@@ -0,0 +1,109 @@
+package de.mino.chapter2.design_patterns.singleton;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput versus latency of the {@link BatchingLlamaTrainer} for different batch sizes and
+ * latency bounds, compared to every trainer calling {@link LlamaTrainer#feedLlamas(int)} itself.
+ * Every caller thread feeds a tiny herd and waits for the result before feeding the next one.
+ *
+ * <p>Usage: {@code BatchingLlamaTrainerBenchmark [threads] [feedingsPerThread]}
+ */
+public class BatchingLlamaTrainerBenchmark {
+
+  private interface Feeding {
+    boolean feed(int numberOfLlamas) throws Exception;
+  }
+
+  public static void main(String[] args) throws Exception {
+    int threads = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+    int feedingsPerThread = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+
+    PrintStream console = System.out;
+    // Writing to the real console would measure the terminal, not the trainers. The swallowing
+    // stream is still a synchronized PrintStream, so the per-call locking is still paid.
+    System.setOut(
+        new PrintStream(
+            new OutputStream() {
+              @Override
+              public void write(int b) {}
+            }));
+
+    StringBuilder report = new StringBuilder();
+    report.append("mode\t\t\tfeedings/ms\tavg latency us\tp99 latency us\tbatches\n");
+    LlamaTrainer direct = new LlamaTrainer();
+    report.append(run("direct", threads, feedingsPerThread, direct::feedLlamas)).append('\n');
+
+    int[] batchSizes = {1, 16, 64, 256};
+    long[] latenciesMicros = {50, 200, 1000};
+    for (int batchSize : batchSizes) {
+      for (long latency : latenciesMicros) {
+        try (BatchingLlamaTrainer batching =
+            new BatchingLlamaTrainer(batchSize, latency, TimeUnit.MICROSECONDS)) {
+          String line =
+              run(
+                  "batch " + batchSize + " / " + latency + "us",
+                  threads,
+                  feedingsPerThread,
+                  n -> batching.feedLlamas(n).get());
+          report.append(line).append('\t').append(batching.getBatches()).append('\n');
+        }
+      }
+    }
+
+    System.setOut(console);
+    System.out.print(report);
+  }
+
+  private static String run(String name, int threads, int feedingsPerThread, Feeding feeding)
+      throws InterruptedException {
+    long[][] latencies = new long[threads][feedingsPerThread];
+    CountDownLatch start = new CountDownLatch(1);
+    CountDownLatch done = new CountDownLatch(threads);
+
+    for (int t = 0; t < threads; t++) {
+      long[] own = latencies[t];
+      new Thread(
+              () -> {
+                try {
+                  start.await();
+                  for (int i = 0; i < feedingsPerThread; i++) {
+                    long before = System.nanoTime();
+                    feeding.feed(1 + i % 3);
+                    own[i] = System.nanoTime() - before;
+                  }
+                } catch (Exception e) {
+                  throw new IllegalStateException(e);
+                } finally {
+                  done.countDown();
+                }
+              })
+          .start();
+    }
+
+    long startTime = System.nanoTime();
+    start.countDown();
+    done.await();
+    long elapsed = System.nanoTime() - startTime;
+
+    long[] all = new long[threads * feedingsPerThread];
+    long sum = 0;
+    for (int t = 0; t < threads; t++) {
+      System.arraycopy(latencies[t], 0, all, t * feedingsPerThread, feedingsPerThread);
+      for (long latency : latencies[t]) {
+        sum += latency;
+      }
+    }
+    Arrays.sort(all);
+    return String.format(
+        "%-24s%.0f\t\t%.1f\t\t%.1f",
+        name,
+        all.length / (elapsed / 1_000_000.0),
+        sum / (double) all.length / 1000,
+        all[(int) (all.length * 0.99)] / 1000.0);
+  }
+}
@@ -0,0 +1,16 @@
+package de.mino.chapter2.design_patterns.singleton;
+
+/**
+ * The operations every hay storage offers. {@link HayStorage#getInstance(HayStorage.Mode)} returns
+ * the synchronized, the lock-free or the striped storage behind this interface, so callers can
+ * switch between them without changing their code.
+ */
+public interface HayDepot {
+
+  void addHay(int amount);
+
+  // Refuses (returns false) if there is not enough hay, the quantity never becomes negative.
+  boolean removeHay(int amount);
+
+  int getHayQuantity();
+}
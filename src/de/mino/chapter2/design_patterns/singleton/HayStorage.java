@@ -1,7 +1,7 @@
 package de.mino.chapter2.design_patterns.singleton;
 
 /** Example 1 for the singleton pattern. */
-public class HayStorage {
+public class HayStorage implements HayDepot {
 
   private int quantity = 0;
 
@@ -21,12 +21,37 @@ public class HayStorage {
     return instance;
   }
 
+  /** How the storage handles many threads at the same time. */
+  public enum Mode {
+    // One lock for everything, this class.
+    SYNCHRONIZED,
+    // Compare-and-set on one counter, see AtomicHayStorage.
+    LOCK_FREE,
+    // One depot per core, see StripedHayStorage.
+    STRIPED
+  }
+
+  // The same facade for all variants. Every mode has exactly one instance, so all callers asking
+  // for the same mode share the same hay.
+  public static HayDepot getInstance(Mode mode) {
+    switch (mode) {
+      case LOCK_FREE:
+        return AtomicHayStorage.getInstance();
+      case STRIPED:
+        return StripedHayStorage.getInstance();
+      default:
+        return instance;
+    }
+  }
+
   // Methods have the synchronized modifier to prevent two processes from running the same method at
   // the same time
+  @Override
   public synchronized void addHay(int amount) {
     quantity += amount;
   }
 
+  @Override
   public synchronized boolean removeHay(int amount) {
     if (quantity < amount) {
       return false;
@@ -35,6 +60,17 @@ public class HayStorage {
     return true;
   }
 
+  // Restocking and withdrawing in one synchronized method means the lock is only taken once per
+  // feeding. Nobody can sneak in between our check and our withdrawal and take the hay we just
+  // restocked.
+  public synchronized boolean restockAndRemoveHay(int amount, int restockAmount) {
+    if (quantity < amount) {
+      quantity += restockAmount;
+    }
+    return removeHay(amount);
+  }
+
+  @Override
   public synchronized int getHayQuantity() {
     return quantity;
   }
@@ -0,0 +1,104 @@
+package de.mino.chapter2.design_patterns.singleton;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+import java.util.function.IntSupplier;
+
+/**
+ * Multi-threaded contention benchmark of the synchronized {@link HayStorage} against the lock-free
+ * {@link AtomicHayStorage}. Every thread restocks and withdraws hay in a tight loop, which is what
+ * the trainer threads do during a feeding round.
+ *
+ * <p>Usage: {@code HayStorageBenchmark [maxThreads] [opsPerThread]}
+ */
+public class HayStorageBenchmark {
+
+  public static void main(String[] args) throws InterruptedException {
+    int maxThreads =
+        args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+    int opsPerThread = args.length > 1 ? Integer.parseInt(args[1]) : 2_000_000;
+
+    HayStorage synced = HayStorage.getInstance();
+    AtomicHayStorage atomic = AtomicHayStorage.getInstance();
+
+    // One warm-up round each so the JIT has compiled both versions before we measure.
+    run("warm-up", 2, opsPerThread / 4, 3, 5,
+        synced::addHay, synced::removeHay, synced::getHayQuantity);
+    run("warm-up", 2, opsPerThread / 4, 3, 5,
+        atomic::addHay, atomic::removeHay, atomic::getHayQuantity);
+
+    System.out.println("threads\tsynchronized ops/ms\tlock-free ops/ms");
+    for (int threads = 1; threads <= maxThreads; threads *= 2) {
+      double s =
+          run("sync", threads, opsPerThread, 3, 5,
+              synced::addHay, synced::removeHay, synced::getHayQuantity);
+      double a =
+          run("cas", threads, opsPerThread, 3, 5,
+              atomic::addHay, atomic::removeHay, atomic::getHayQuantity);
+      System.out.printf("%d\t%.0f\t\t\t%.0f%n", threads, s, a);
+    }
+  }
+
+  // Returns the throughput in operations per millisecond. Also verifies that no hay got lost or
+  // created out of thin air: the final quantity must equal everything added minus every successful
+  // withdrawal.
+  static double run(
+      String name,
+      int threads,
+      int opsPerThread,
+      int addAmount,
+      int removeAmount,
+      IntConsumer add,
+      IntPredicate remove,
+      IntSupplier quantity)
+      throws InterruptedException {
+    int before = quantity.getAsInt();
+    LongAdder added = new LongAdder();
+    LongAdder removed = new LongAdder();
+    CountDownLatch start = new CountDownLatch(1);
+    CountDownLatch done = new CountDownLatch(threads);
+
+    for (int t = 0; t < threads; t++) {
+      new Thread(
+              () -> {
+                long localAdded = 0;
+                long localRemoved = 0;
+                try {
+                  start.await();
+                } catch (InterruptedException e) {
+                  Thread.currentThread().interrupt();
+                  return;
+                }
+                // Every second operation restocks. When more is withdrawn than restocked, the
+                // storage regularly runs empty and withdrawals have to be refused.
+                for (int i = 0; i < opsPerThread; i++) {
+                  if ((i & 1) == 0) {
+                    add.accept(addAmount);
+                    localAdded += addAmount;
+                  } else if (remove.test(removeAmount)) {
+                    localRemoved += removeAmount;
+                  }
+                }
+                added.add(localAdded);
+                removed.add(localRemoved);
+                done.countDown();
+              })
+          .start();
+    }
+
+    long startTime = System.nanoTime();
+    start.countDown();
+    done.await();
+    long elapsed = System.nanoTime() - startTime;
+
+    long expected = before + added.sum() - removed.sum();
+    int actual = quantity.getAsInt();
+    if (actual != expected || actual < 0) {
+      throw new IllegalStateException(
+          name + ": expected quantity " + expected + " but storage holds " + actual);
+    }
+    return (double) threads * opsPerThread / (elapsed / 1_000_000.0);
+  }
+}
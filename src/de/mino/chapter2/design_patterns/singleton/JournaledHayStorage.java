@@ -0,0 +1,302 @@
+package de.mino.chapter2.design_patterns.singleton;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persistent variant of the {@link HayStorage}. The quantity still lives in memory, but every
+ * successful add/remove is also appended to a write-ahead journal, a memory-mapped file in the
+ * given directory. After a restart the quantity is recovered from the journal.
+ *
+ * <p>So that the journal doesn't grow forever, a compact snapshot of the quantity is written every
+ * {@code snapshotEvery} operations and the journal is cleared. Recovery then reads the snapshot and
+ * only replays the operations after it (the tail).
+ *
+ * <p>Unlike the other singletons this one needs a location and a {@link SyncPolicy}, so it is
+ * created with {@link #open} instead of a getInstance() method. Only one instance per directory may
+ * be open at a time. The journal is locked while it is open, opening it a second time (in this or
+ * another JVM) fails with an IOException.
+ */
+public class JournaledHayStorage implements AutoCloseable {
+
+  /** When the journal is forced (fsync) to the disk. */
+  public enum SyncPolicy {
+    // Nothing is lost, even on power loss. Slowest.
+    EVERY_OP,
+    // At most the last syncIntervalMillis of operations are lost on power loss.
+    INTERVAL,
+    // The operating system decides when to write. Survives a crash of the JVM but not of the machine.
+    NEVER
+  }
+
+  private static final String JOURNAL_FILE = "hay.journal";
+  private static final String SNAPSHOT_FILE = "hay.snapshot";
+
+  // Journal layout: [long epoch] followed by records of [int amount][byte op]. The op byte is written
+  // last, so a record only counts once it is complete. A zero op marks the end of the journal.
+  private static final int HEADER_SIZE = Long.BYTES;
+  private static final int RECORD_SIZE = Integer.BYTES + 1;
+  private static final byte END = 0;
+  private static final byte ADD = 1;
+  private static final byte REMOVE = 2;
+
+  private final Path directory;
+  private final SyncPolicy policy;
+  private final int snapshotEvery;
+  private final FileChannel journalChannel;
+  private final MappedByteBuffer journal;
+  private final int capacity;
+  private final ScheduledExecutorService syncer;
+
+  // The epoch is increased with every snapshot. Journal and snapshot both store it, so recovery can
+  // tell whether the journal belongs to the snapshot or is an old one that was already compacted.
+  private long epoch;
+  private int quantity;
+  private int records;
+
+  private JournaledHayStorage(
+      Path directory, SyncPolicy policy, long syncIntervalMillis, int snapshotEvery)
+      throws IOException {
+    this.directory = directory;
+    this.policy = policy;
+    this.snapshotEvery = snapshotEvery;
+    Files.createDirectories(directory);
+    this.journalChannel =
+        FileChannel.open(
+            directory.resolve(JOURNAL_FILE),
+            StandardOpenOption.CREATE,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+    try {
+      lock();
+      // The journal never has to hold more than snapshotEvery records, so it can be mapped once
+      // with a fixed size. An existing journal might be bigger (opened with a larger snapshotEvery
+      // before), in that case it is mapped completely so no record is lost.
+      long size =
+          Math.max(journalChannel.size(), HEADER_SIZE + (long) snapshotEvery * RECORD_SIZE);
+      this.journal = journalChannel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+      this.capacity = (int) ((size - HEADER_SIZE) / RECORD_SIZE);
+      recover();
+      if (policy == SyncPolicy.INTERVAL) {
+        syncer =
+            Executors.newSingleThreadScheduledExecutor(
+                r -> {
+                  Thread thread = new Thread(r, "hay-journal-sync");
+                  thread.setDaemon(true);
+                  return thread;
+                });
+        syncer.scheduleAtFixedRate(
+            this::sync, syncIntervalMillis, syncIntervalMillis, TimeUnit.MILLISECONDS);
+      } else {
+        syncer = null;
+      }
+    } catch (IOException | RuntimeException e) {
+      // Also releases the lock.
+      journalChannel.close();
+      throw e;
+    }
+  }
+
+  private void lock() throws IOException {
+    FileLock lock;
+    try {
+      lock = journalChannel.tryLock();
+    } catch (OverlappingFileLockException e) {
+      // Held by another instance in this JVM.
+      lock = null;
+    }
+    if (lock == null) {
+      throw new IOException("The hay storage in " + directory + " is already open");
+    }
+  }
+
+  /**
+   * Opens (or creates) the storage in the given directory and recovers the last known quantity.
+   *
+   * @param syncIntervalMillis only used with {@link SyncPolicy#INTERVAL}
+   * @param snapshotEvery number of journaled operations after which a snapshot is taken
+   */
+  public static JournaledHayStorage open(
+      Path directory, SyncPolicy policy, long syncIntervalMillis, int snapshotEvery)
+      throws IOException {
+    if (snapshotEvery < 1) {
+      throw new IllegalArgumentException("snapshotEvery must be at least 1");
+    }
+    if (policy == SyncPolicy.INTERVAL && syncIntervalMillis < 1) {
+      throw new IllegalArgumentException("syncIntervalMillis must be at least 1");
+    }
+    return new JournaledHayStorage(directory, policy, syncIntervalMillis, snapshotEvery);
+  }
+
+  // The journal is written first and the quantity only changed once that worked. If append()
+  // throws, neither of them contains the operation.
+  public synchronized void addHay(int amount) {
+    append(ADD, amount, quantity + amount);
+    quantity += amount;
+  }
+
+  public synchronized boolean removeHay(int amount) {
+    if (quantity < amount) {
+      return false;
+    }
+    append(REMOVE, amount, quantity - amount);
+    quantity -= amount;
+    return true;
+  }
+
+  public synchronized int getHayQuantity() {
+    return quantity;
+  }
+
+  // Number of operations in the journal that would have to be replayed on recovery.
+  public synchronized int getJournalLength() {
+    return records;
+  }
+
+  // newQuantity is the quantity after the operation, a snapshot taken now has to contain it.
+  private void append(byte op, int amount, int newQuantity) {
+    int position = HEADER_SIZE + records * RECORD_SIZE;
+    journal.putInt(position, amount);
+    journal.put(position + Integer.BYTES, op);
+    records++;
+    if (records >= snapshotEvery) {
+      try {
+        snapshot(newQuantity);
+      } catch (UncheckedIOException e) {
+        // The snapshot wasn't moved into place, so the journal is still the one recovery reads.
+        // Taking the record back out makes the operation fail completely.
+        records--;
+        journal.put(position + Integer.BYTES, END);
+        throw e;
+      }
+    } else if (policy == SyncPolicy.EVERY_OP) {
+      journal.force();
+    }
+  }
+
+  private void snapshot(int quantity) {
+    long nextEpoch = epoch + 1;
+    // 1. Write the snapshot to a temporary file and move it over the old one, so a crash leaves
+    // either the old or the new snapshot but never a half written one.
+    Path snapshot = directory.resolve(SNAPSHOT_FILE);
+    Path temporary = directory.resolve(SNAPSHOT_FILE + ".tmp");
+    try (FileChannel channel =
+        FileChannel.open(
+            temporary,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES + Integer.BYTES);
+      buffer.putLong(nextEpoch).putInt(quantity).flip();
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      channel.force(true);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not write hay snapshot", e);
+    }
+    try {
+      Files.move(
+          temporary, snapshot, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not write hay snapshot", e);
+    }
+    // 2. Clear the journal and only then move it to the new epoch. If we crash in between, the
+    // journal still has the old epoch and is ignored during recovery because the snapshot already
+    // contains all of its operations.
+    clearJournal(nextEpoch);
+    epoch = nextEpoch;
+  }
+
+  private void clearJournal(long newEpoch) {
+    int end = HEADER_SIZE + records * RECORD_SIZE;
+    for (int position = HEADER_SIZE; position < end; position++) {
+      journal.put(position, END);
+    }
+    journal.force();
+    journal.putLong(0, newEpoch);
+    journal.force();
+    records = 0;
+  }
+
+  private void recover() throws IOException {
+    Path snapshot = directory.resolve(SNAPSHOT_FILE);
+    if (Files.exists(snapshot)) {
+      ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(snapshot));
+      epoch = buffer.getLong();
+      quantity = buffer.getInt();
+    }
+    if (journal.getLong(0) != epoch) {
+      // Leftover from before the last snapshot (or a fresh file), nothing to replay. The whole file
+      // is cleared because we don't know how far it was filled.
+      records = capacity;
+      clearJournal(epoch);
+      return;
+    }
+    for (records = 0; records < capacity; records++) {
+      int position = HEADER_SIZE + records * RECORD_SIZE;
+      byte op = journal.get(position + Integer.BYTES);
+      if (op == END) {
+        break;
+      }
+      int amount = journal.getInt(position);
+      quantity += op == ADD ? amount : -amount;
+    }
+    if (records >= snapshotEvery) {
+      snapshot(quantity);
+    }
+  }
+
+  // Called by the background thread with SyncPolicy.INTERVAL.
+  private void sync() {
+    journal.force();
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (syncer != null) {
+      syncer.shutdown();
+      // A force() of the syncer that is still running must be done before the channel is closed.
+      boolean interrupted = false;
+      boolean terminated = false;
+      while (!terminated) {
+        try {
+          terminated = syncer.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    journal.force();
+    journalChannel.close();
+  }
+
+  public static void main(String[] args) throws IOException {
+    Path directory = Files.createTempDirectory("hay");
+    try (JournaledHayStorage storage =
+        JournaledHayStorage.open(directory, SyncPolicy.EVERY_OP, 0, 1000)) {
+      storage.addHay(100);
+      storage.removeHay(30);
+    }
+    // "Restart": the quantity is recovered from the journal.
+    try (JournaledHayStorage storage =
+        JournaledHayStorage.open(directory, SyncPolicy.EVERY_OP, 0, 1000)) {
+      System.out.println("Recovered hay: " + storage.getHayQuantity()); // 70
+    }
+  }
+}
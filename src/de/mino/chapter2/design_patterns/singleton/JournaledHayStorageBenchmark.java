@@ -0,0 +1,75 @@
+package de.mino.chapter2.design_patterns.singleton;
+
+import de.mino.chapter2.design_patterns.singleton.JournaledHayStorage.SyncPolicy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Measures the {@link JournaledHayStorage}: operations per second for every {@link SyncPolicy} and
+ * how long the recovery takes depending on the number of journal records that have to be replayed.
+ *
+ * <p>Usage: {@code JournaledHayStorageBenchmark [ops]}
+ */
+public class JournaledHayStorageBenchmark {
+
+  public static void main(String[] args) throws IOException {
+    int ops = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+    System.out.println("policy\t\tops/s");
+    for (SyncPolicy policy : SyncPolicy.values()) {
+      // Forcing every single operation to the disk is several orders of magnitude slower, so it
+      // gets fewer operations to keep the run short.
+      int count = policy == SyncPolicy.EVERY_OP ? Math.min(ops, 5_000) : ops;
+      Path directory = Files.createTempDirectory("hay-bench");
+      try (JournaledHayStorage storage = JournaledHayStorage.open(directory, policy, 10, 100_000)) {
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+          if ((i & 1) == 0) {
+            storage.addHay(5);
+          } else {
+            storage.removeHay(4);
+          }
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%-12s\t%.0f%n", policy, count / (elapsed / 1_000_000_000.0));
+      } finally {
+        delete(directory);
+      }
+    }
+
+    System.out.println("\njournal length\trecovery ms");
+    for (int length = 1_000; length <= ops; length *= 10) {
+      Path directory = Files.createTempDirectory("hay-bench");
+      try {
+        // Snapshots are disabled (snapshotEvery > length), so the whole journal has to be replayed.
+        try (JournaledHayStorage storage =
+            JournaledHayStorage.open(directory, SyncPolicy.NEVER, 0, length + 1)) {
+          for (int i = 0; i < length; i++) {
+            storage.addHay(1);
+          }
+        }
+        long start = System.nanoTime();
+        try (JournaledHayStorage storage =
+            JournaledHayStorage.open(directory, SyncPolicy.NEVER, 0, length + 1)) {
+          long elapsed = System.nanoTime() - start;
+          if (storage.getHayQuantity() != length) {
+            throw new IllegalStateException("Recovered " + storage.getHayQuantity() + " hay");
+          }
+          System.out.printf("%d\t\t%.2f%n", length, elapsed / 1_000_000.0);
+        }
+      } finally {
+        delete(directory);
+      }
+    }
+  }
+
+  private static void delete(Path directory) throws IOException {
+    try (Stream<Path> files = Files.walk(directory)) {
+      files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+    }
+  }
+}
@@ -0,0 +1,80 @@
+package de.mino.chapter2.design_patterns.singleton;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.function.IntPredicate;
+import java.util.function.IntSupplier;
+
+/**
+ * Compares the old check-then-act feeding against the atomic restock-and-feed operation, with the
+ * synchronized and the lock-free storage. Besides throughput it prints the failed feedings, the CAS
+ * retries and how much hay was left over because trainers restocked more than they needed.
+ *
+ * <p>Usage: {@code LlamaFeedingBenchmark [threads] [feedingsPerThread]}
+ */
+public class LlamaFeedingBenchmark {
+
+  public static void main(String[] args) throws InterruptedException {
+    int threads =
+        args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+    int feedingsPerThread = args.length > 1 ? Integer.parseInt(args[1]) : 500_000;
+
+    // A trainer that doesn't print. Even into a stream that swallows everything, println() takes
+    // the lock of the PrintStream, and all threads would queue there instead of at the storage.
+    LlamaTrainer trainer = new LlamaTrainer(false);
+
+    String[] report = {
+      run("check-then-act", threads, feedingsPerThread, trainer::feedLlamasCheckThenAct,
+          () -> HayStorage.getInstance().getHayQuantity()),
+      run("atomic (synchronized)", threads, feedingsPerThread, trainer::feedLlamas,
+          () -> HayStorage.getInstance().getHayQuantity()),
+      run("atomic (lock-free)", threads, feedingsPerThread, trainer::feedLlamasLockFree,
+          () -> AtomicHayStorage.getInstance().getHayQuantity())
+    };
+
+    System.out.println("mode\t\t\tfeedings/ms\tfailed\tretries\thay left over");
+    for (String line : report) {
+      System.out.println(line);
+    }
+  }
+
+  private static String run(
+      String name, int threads, int feedingsPerThread, IntPredicate feed, IntSupplier hayLeft)
+      throws InterruptedException {
+    LlamaTrainer.resetCounters();
+    int hayBefore = hayLeft.getAsInt();
+    long retriesBefore = AtomicHayStorage.getInstance().getRetries();
+    CountDownLatch start = new CountDownLatch(1);
+    CountDownLatch done = new CountDownLatch(threads);
+
+    for (int t = 0; t < threads; t++) {
+      new Thread(
+              () -> {
+                try {
+                  start.await();
+                } catch (InterruptedException e) {
+                  Thread.currentThread().interrupt();
+                  return;
+                }
+                // Small herds of 1 to 3 llamas, like during a normal feeding round.
+                for (int i = 0; i < feedingsPerThread; i++) {
+                  feed.test(1 + i % 3);
+                }
+                done.countDown();
+              })
+          .start();
+    }
+
+    long startTime = System.nanoTime();
+    start.countDown();
+    done.await();
+    long elapsed = System.nanoTime() - startTime;
+
+    return String.format(
+        "%-24s%.0f\t\t%d\t%d\t%d",
+        name,
+        (LlamaTrainer.getFeedings() + LlamaTrainer.getFailedFeedings()) / (elapsed / 1_000_000.0),
+        LlamaTrainer.getFailedFeedings(),
+        AtomicHayStorage.getInstance().getRetries() - retriesBefore,
+        hayLeft.getAsInt() - hayBefore);
+  }
+}
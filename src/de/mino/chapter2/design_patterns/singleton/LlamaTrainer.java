@@ -1,12 +1,51 @@
 package de.mino.chapter2.design_patterns.singleton;
 
+import java.util.concurrent.atomic.LongAdder;
+
 /**
  * Note: There might be multiple LlamaTrainers at the Zoo but only one HayStorage location. With
  * this data model we can have many LlamaTrainer instances but only a single instance of HayStorage
  */
 public class LlamaTrainer {
 
+  // Shared by all trainers so we can see how many feedings went through and how many failed.
+  private static final LongAdder feedings = new LongAdder();
+  private static final LongAdder failedFeedings = new LongAdder();
+
+  private final boolean printFeedings;
+
+  public LlamaTrainer() {
+    this(true);
+  }
+
+  /**
+   * @param printFeedings false to not print every feeding. Printing takes the lock of System.out,
+   *     so with many trainers they would all wait for each other there (e.g. in a benchmark).
+   */
+  public LlamaTrainer(boolean printFeedings) {
+    this.printFeedings = printFeedings;
+  }
+
   public boolean feedLlamas(int numberOfLlamas) {
+    int amountNeeded = 5 * numberOfLlamas;
+    // Restocking and withdrawing is a single atomic operation on the HayStorage, so the lock is taken
+    // only once and no other trainer can take the hay we restocked for our llamas.
+    boolean fed = HayStorage.getInstance().restockAndRemoveHay(amountNeeded, amountNeeded + 10);
+    return count(fed, amountNeeded);
+  }
+
+  // Same as feedLlamas() but uses the lock-free storage. Lost CAS races show up as
+  // AtomicHayStorage.getRetries() instead of as blocked threads.
+  public boolean feedLlamasLockFree(int numberOfLlamas) {
+    int amountNeeded = 5 * numberOfLlamas;
+    boolean fed =
+        AtomicHayStorage.getInstance().restockAndRemoveHay(amountNeeded, amountNeeded + 10);
+    return count(fed, amountNeeded);
+  }
+
+  // The original version, kept to compare against. It takes the lock three times and is a classic
+  // check-then-act race: between the check and the removal other trainers can run.
+  public boolean feedLlamasCheckThenAct(int numberOfLlamas) {
     int amountNeeded = 5 * numberOfLlamas;
     HayStorage hayStorage = HayStorage.getInstance();
     if (hayStorage.getHayQuantity() < amountNeeded) {
@@ -15,12 +54,34 @@ public class LlamaTrainer {
     boolean fed = hayStorage.removeHay(amountNeeded);
     // Check the return type of fed because it might be possible that someone else could have taken
     // the food that we just restocked before we had a chance to use it.
+    return count(fed, amountNeeded);
+  }
+
+  private boolean count(boolean fed, int amount) {
     if (fed) {
-      System.out.println("Llamas have been fed with " + amountNeeded + " hay");
+      feedings.increment();
+      if (printFeedings) {
+        System.out.println("Llamas have been fed with " + amount + " hay");
+      }
+    } else {
+      failedFeedings.increment();
     }
     return fed;
   }
 
+  public static long getFeedings() {
+    return feedings.sum();
+  }
+
+  public static long getFailedFeedings() {
+    return failedFeedings.sum();
+  }
+
+  public static void resetCounters() {
+    feedings.reset();
+    failedFeedings.reset();
+  }
+
   public static void main(String[] args) {
     LlamaTrainer llamaTrainer = new LlamaTrainer();
     llamaTrainer.feedLlamas(3);
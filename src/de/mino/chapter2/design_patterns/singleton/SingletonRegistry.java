@@ -0,0 +1,168 @@
+package de.mino.chapter2.design_patterns.singleton;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Registry that applies lazy instantiation to any number of singletons. Only a factory is
+ * registered at startup, the singleton itself is created the first time someone calls {@link
+ * #get}. Singletons that are needed soon anyway can be warmed on a background thread after the
+ * application started.
+ *
+ * <p>For every singleton the registry records how long the construction took and in which order
+ * the singletons were created. Since an eager singleton like {@link HayStorage} is created in its
+ * static initializer, registering {@code HayStorage::getInstance} also defers (and measures) the
+ * class initialization. That way the expensive singletons on the startup path can be found.
+ */
+public class SingletonRegistry {
+
+  private static final SingletonRegistry instance = new SingletonRegistry();
+
+  public static SingletonRegistry getInstance() {
+    return instance;
+  }
+
+  private final ConcurrentMap<Class<?>, Entry<?>> entries = new ConcurrentHashMap<>();
+  private final ConcurrentLinkedQueue<InitRecord> initRecords = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger initOrder = new AtomicInteger();
+
+  // Package private so the startup benchmark can compare fresh registries.
+  SingletonRegistry() {}
+
+  public <T> void register(Class<T> type, Supplier<? extends T> factory) {
+    if (entries.putIfAbsent(type, new Entry<>(type, factory)) != null) {
+      throw new IllegalStateException(type.getName() + " is already registered");
+    }
+  }
+
+  /** Returns the singleton, creating it on the first call. */
+  public <T> T get(Class<T> type) {
+    Entry<?> entry = entries.get(type);
+    if (entry == null) {
+      throw new IllegalArgumentException(type.getName() + " is not registered");
+    }
+    return type.cast(entry.get());
+  }
+
+  public boolean isInitialized(Class<?> type) {
+    Entry<?> entry = entries.get(type);
+    return entry != null && entry.value != null;
+  }
+
+  /**
+   * Creates the given singletons one after another on a background thread. Calls to {@link #get}
+   * in the meantime don't wait for the warm-up, they only wait if the singleton they ask for is
+   * being created right now.
+   */
+  public CompletableFuture<Void> warmUp(Class<?>... types) {
+    List<Class<?>> toWarm = new ArrayList<>(Arrays.asList(types));
+    return CompletableFuture.runAsync(
+        () -> toWarm.forEach(this::get),
+        task -> {
+          Thread thread = new Thread(task, "singleton-warm-up");
+          // Don't keep the JVM alive only to warm up singletons.
+          thread.setDaemon(true);
+          thread.start();
+        });
+  }
+
+  /** The constructions so far, in the order they happened. */
+  public List<InitRecord> getInitRecords() {
+    List<InitRecord> records = new ArrayList<>(initRecords);
+    records.sort(Comparator.comparingInt(InitRecord::getOrder));
+    return Collections.unmodifiableList(records);
+  }
+
+  // Double-checked locking per singleton, see VisitorTicketTracker.getInstanceThreadSafe().
+  private final class Entry<T> {
+    private final Class<T> type;
+    private final Supplier<? extends T> factory;
+    private volatile T value;
+
+    private Entry(Class<T> type, Supplier<? extends T> factory) {
+      this.type = type;
+      this.factory = factory;
+    }
+
+    private T get() {
+      T result = value;
+      if (result == null) {
+        synchronized (this) {
+          result = value;
+          if (result == null) {
+            long start = System.nanoTime();
+            result = factory.get();
+            long nanos = System.nanoTime() - start;
+            if (result == null) {
+              throw new IllegalStateException("Factory for " + type.getName() + " returned null");
+            }
+            value = result;
+            initRecords.add(
+                new InitRecord(
+                    type, initOrder.incrementAndGet(), nanos, Thread.currentThread().getName()));
+          }
+        }
+      }
+      return result;
+    }
+  }
+
+  /** How and when one singleton was created. */
+  public static final class InitRecord {
+    private final Class<?> type;
+    private final int order;
+    private final long constructionNanos;
+    private final String thread;
+
+    private InitRecord(Class<?> type, int order, long constructionNanos, String thread) {
+      this.type = type;
+      this.order = order;
+      this.constructionNanos = constructionNanos;
+      this.thread = thread;
+    }
+
+    public Class<?> getType() {
+      return type;
+    }
+
+    // 1 for the first singleton that was created, 2 for the second, ...
+    public int getOrder() {
+      return order;
+    }
+
+    public long getConstructionNanos() {
+      return constructionNanos;
+    }
+
+    public String getThread() {
+      return thread;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          "#%d %s %.3f ms (%s)", order, type.getSimpleName(), constructionNanos / 1e6, thread);
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    SingletonRegistry registry = SingletonRegistry.getInstance();
+    // Nothing is created here, the method references don't initialize the classes yet.
+    registry.register(HayStorage.class, HayStorage::getInstance);
+    registry.register(StaffRegister.class, StaffRegister::getInstance);
+    registry.register(VisitorTicketTracker.class, VisitorTicketTracker::getInstanceOnDemand);
+
+    registry.get(HayStorage.class).addHay(10);
+    registry.warmUp(StaffRegister.class, VisitorTicketTracker.class).get();
+    registry.getInitRecords().forEach(System.out::println);
+  }
+}
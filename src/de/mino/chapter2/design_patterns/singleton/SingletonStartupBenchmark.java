@@ -0,0 +1,144 @@
+package de.mino.chapter2.design_patterns.singleton;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Compares the boot time when all singletons are created eagerly with the boot time when they are
+ * registered in a {@link SingletonRegistry} and only the ones needed at startup are created.
+ *
+ * <p>First with simulated singletons, each takes a fixed amount of time to construct (loading
+ * files, opening connections, ...), so that result only shows what the registry could save. Then
+ * with the real singletons of this package: {@link HayStorage}, {@link StaffRegister} (loads
+ * staff.csv), {@link VisitorTicketTracker} and {@link AtomicHayStorage}. Their construction happens
+ * in the static initialization of their classes, which happens only once per JVM. So the eager and
+ * the lazy boot each run in a JVM of their own.
+ *
+ * <p>Usage: {@code SingletonStartupBenchmark}. A bigger staff file can be given with {@code
+ * -Dstaff.register.file=...}, it is passed on to both JVMs.
+ */
+public class SingletonStartupBenchmark {
+
+  // Simulated singletons with their construction time in milliseconds.
+  static final class Config {}
+
+  static final class FeedingPlan {}
+
+  static final class StaffCache {}
+
+  static final class TicketPrices {}
+
+  static final class MapTiles {}
+
+  static final class Statistics {}
+
+  private static final Class<?>[] TYPES = {
+    Config.class,
+    FeedingPlan.class,
+    StaffCache.class,
+    TicketPrices.class,
+    MapTiles.class,
+    Statistics.class
+  };
+  private static final int[] COST_MILLIS = {5, 40, 80, 10, 150, 60};
+
+  public static void main(String[] args) throws Exception {
+    if (args.length > 0 && args[0].startsWith("--case=")) {
+      bootRealSingletons(args[0].substring("--case=".length()));
+      return;
+    }
+    bootSimulatedSingletons();
+    for (String name : new String[] {"eager", "lazy"}) {
+      List<String> command = new ArrayList<>();
+      command.add(System.getProperty("java.home") + "/bin/java");
+      command.add("-cp");
+      command.add(System.getProperty("java.class.path"));
+      String staffFile = System.getProperty(StaffRegister.FILE_PROPERTY);
+      if (staffFile != null) {
+        command.add("-D" + StaffRegister.FILE_PROPERTY + "=" + staffFile);
+      }
+      command.add(SingletonStartupBenchmark.class.getName());
+      command.add("--case=" + name);
+      Process process = new ProcessBuilder(command).inheritIO().start();
+      if (process.waitFor() != 0) {
+        throw new IllegalStateException("Case " + name + " failed");
+      }
+    }
+  }
+
+  private static void bootSimulatedSingletons() throws Exception {
+    System.out.println("--- Simulated singletons ---");
+    long start = System.nanoTime();
+    for (int i = 0; i < TYPES.length; i++) {
+      construct(i);
+    }
+    long eager = System.nanoTime() - start;
+
+    start = System.nanoTime();
+    SingletonRegistry registry = new SingletonRegistry();
+    for (int i = 0; i < TYPES.length; i++) {
+      register(registry, i);
+    }
+    // Only the configuration and the ticket prices are needed to open the gates.
+    registry.get(Config.class);
+    registry.get(TicketPrices.class);
+    long lazy = System.nanoTime() - start;
+    // Everything else is warmed up in the background after the start.
+    registry.warmUp(FeedingPlan.class, StaffCache.class, Statistics.class).get();
+
+    System.out.printf("eager boot: %.1f ms%n", eager / 1e6);
+    System.out.printf("lazy registry boot: %.1f ms%n", lazy / 1e6);
+    System.out.println("\nConstruction order:");
+    registry.getInitRecords().forEach(System.out::println);
+    System.out.println("Never needed: MapTiles = " + registry.isInitialized(MapTiles.class));
+  }
+
+  // Runs in a fresh JVM, none of the singleton classes is initialized yet.
+  private static void bootRealSingletons(String mode) throws Exception {
+    long start = System.nanoTime();
+    SingletonRegistry registry = new SingletonRegistry();
+    registry.register(HayStorage.class, HayStorage::getInstance);
+    registry.register(StaffRegister.class, StaffRegister::getInstance);
+    registry.register(VisitorTicketTracker.class, VisitorTicketTracker::getInstanceOnDemand);
+    registry.register(AtomicHayStorage.class, AtomicHayStorage::getInstance);
+    boolean eager = mode.equals("eager");
+    if (eager) {
+      // Everything is created on the startup path, like with plain eager singletons.
+      registry.get(HayStorage.class);
+      registry.get(StaffRegister.class);
+      registry.get(VisitorTicketTracker.class);
+      registry.get(AtomicHayStorage.class);
+    } else {
+      // Only the hay storage is needed to open the gates.
+      registry.get(HayStorage.class).addHay(10);
+    }
+    long boot = System.nanoTime() - start;
+    if (!eager) {
+      // The staff register and the tickets are needed soon after, the lock-free storage never.
+      registry.warmUp(StaffRegister.class, VisitorTicketTracker.class).get();
+    }
+
+    System.out.printf("%n--- Real singletons, %s boot: %.1f ms ---%n", mode, boot / 1e6);
+    System.out.println("Construction order:");
+    registry.getInitRecords().forEach(System.out::println);
+    System.out.println(
+        "AtomicHayStorage initialized: " + registry.isInitialized(AtomicHayStorage.class));
+  }
+
+  private static <T> void register(SingletonRegistry registry, int index) {
+    @SuppressWarnings("unchecked")
+    Class<T> type = (Class<T>) TYPES[index];
+    registry.register(type, () -> type.cast(construct(index)));
+  }
+
+  private static Object construct(int index) {
+    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(COST_MILLIS[index]));
+    try {
+      return TYPES[index].getDeclaredConstructor().newInstance();
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,46 @@
+package de.mino.chapter2.design_patterns.singleton;
+
+/** A single entry of the {@link StaffRegister}. Shift times are minutes since midnight. */
+public final class Staff {
+
+  private final int id;
+  private final String name;
+  private final String zone;
+  private final int shiftStart;
+  private final int shiftEnd;
+
+  public Staff(int id, String name, String zone, int shiftStart, int shiftEnd) {
+    this.id = id;
+    this.name = name;
+    this.zone = zone;
+    this.shiftStart = shiftStart;
+    this.shiftEnd = shiftEnd;
+  }
+
+  public int getId() {
+    return id;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public String getZone() {
+    return zone;
+  }
+
+  public int getShiftStart() {
+    return shiftStart;
+  }
+
+  public int getShiftEnd() {
+    return shiftEnd;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "Staff{id=%d, name='%s', zone='%s', shift=%02d:%02d-%02d:%02d}",
+        id, name, zone, shiftStart / 60, shiftStart % 60, shiftEnd / 60, shiftEnd % 60);
+  }
+}
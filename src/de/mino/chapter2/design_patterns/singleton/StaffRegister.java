@@ -1,14 +1,364 @@
 package de.mino.chapter2.design_patterns.singleton;
 
-/** Example 2 to create a singleton. Here via static initialization block. */
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Example 2 to create a singleton. Here via static initialization block.
+ *
+ * <p>The register is the staff directory of the zoo. To keep millions of entries small, it doesn't
+ * store one object per employee but one primitive array per attribute (columnar storage). Names and
+ * zones are stored only once in a dictionary and the rows just keep the index into it. {@link
+ * Staff} objects are only created for the results of a lookup.
+ */
 public class StaffRegister {
 
+  // The file can be overridden with -Dstaff.register.file=..., otherwise the classpath resource is
+  // used.
+  static final String FILE_PROPERTY = "staff.register.file";
+  private static final String DEFAULT_RESOURCE = "resources/staff.csv";
+  private static final int MINUTES_PER_DAY = 24 * 60;
+
   private static final StaffRegister instance;
 
   // The static initialization block creates a singleton when the class is loaded.
   static {
-    instance = new StaffRegister();
+    instance = loadDefault();
     // An advantage of this approach is that we could allow additional steps to be taken here to set
-    // up the singleton after it has been created.
+    // up the singleton after it has been created. Here we bulk-load the register from a file.
+  }
+
+  public static StaffRegister getInstance() {
+    return instance;
+  }
+
+  // Columns. Row i describes one employee.
+  private final int size;
+  private final int[] ids;
+  private final int[] nameCodes;
+  private final short[] zoneCodes;
+  private final short[] shiftStarts;
+  private final short[] shiftEnds;
+
+  // Dictionaries: code -> value, and for the zones also value -> code.
+  private final String[] names;
+  private final String[] zones;
+  private final Map<String, Integer> zoneDictionary;
+
+  // Hash index id -> row. Open addressing, the table holds row + 1 so that 0 means "empty".
+  private final int[] idTable;
+  // Zone index: the rows of zone z are zoneRows[zoneOffsets[z]] until zoneRows[zoneOffsets[z + 1]].
+  private final int[] zoneOffsets;
+  private final int[] zoneRows;
+  // Sorted index: all rows ordered by the start of their shift.
+  private final int[] rowsByShiftStart;
+  // The longest shift in minutes. A shift that overlaps a window can't start earlier than this
+  // before the window.
+  private final int maxShiftLength;
+
+  private StaffRegister(Columns columns) {
+    size = columns.size;
+    ids = Arrays.copyOf(columns.ids, size);
+    nameCodes = Arrays.copyOf(columns.nameCodes, size);
+    zoneCodes = Arrays.copyOf(columns.zoneCodes, size);
+    shiftStarts = Arrays.copyOf(columns.shiftStarts, size);
+    shiftEnds = Arrays.copyOf(columns.shiftEnds, size);
+    names = columns.names.toArray(new String[0]);
+    zones = columns.zones.toArray(new String[0]);
+    zoneDictionary = new HashMap<>(columns.zoneDictionary);
+
+    idTable = new int[Integer.highestOneBit(Math.max(size, 1) * 2 - 1) * 2];
+    for (int row = 0; row < size; row++) {
+      int slot = slot(ids[row]);
+      while (idTable[slot] != 0) {
+        if (ids[idTable[slot] - 1] == ids[row]) {
+          throw new IllegalArgumentException("Duplicate staff id: " + ids[row]);
+        }
+        slot = (slot + 1) & (idTable.length - 1);
+      }
+      idTable[slot] = row + 1;
+    }
+
+    // Counting sort by zone: count the rows per zone, turn the counts into offsets, fill the rows.
+    zoneOffsets = new int[zones.length + 1];
+    for (int row = 0; row < size; row++) {
+      zoneOffsets[zoneCodes[row] + 1]++;
+    }
+    for (int zone = 0; zone < zones.length; zone++) {
+      zoneOffsets[zone + 1] += zoneOffsets[zone];
+    }
+    zoneRows = new int[size];
+    int[] fill = Arrays.copyOf(zoneOffsets, zones.length);
+    for (int row = 0; row < size; row++) {
+      zoneRows[fill[zoneCodes[row]]++] = row;
+    }
+
+    // Same for the shift start. There are only 1440 minutes per day.
+    int[] minuteOffsets = new int[MINUTES_PER_DAY + 1];
+    for (int row = 0; row < size; row++) {
+      minuteOffsets[shiftStarts[row] + 1]++;
+    }
+    for (int minute = 0; minute < MINUTES_PER_DAY; minute++) {
+      minuteOffsets[minute + 1] += minuteOffsets[minute];
+    }
+    rowsByShiftStart = new int[size];
+    for (int row = 0; row < size; row++) {
+      rowsByShiftStart[minuteOffsets[shiftStarts[row]]++] = row;
+    }
+
+    int longest = 0;
+    for (int row = 0; row < size; row++) {
+      longest = Math.max(longest, shiftLength(row));
+    }
+    maxShiftLength = longest;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /** Returns the employee with the given id or null. */
+  public Staff findById(int id) {
+    int slot = slot(id);
+    while (idTable[slot] != 0) {
+      int row = idTable[slot] - 1;
+      if (ids[row] == id) {
+        return toStaff(row);
+      }
+      slot = (slot + 1) & (idTable.length - 1);
+    }
+    return null;
+  }
+
+  public List<Staff> findByZone(String zone) {
+    List<Staff> result = new ArrayList<>();
+    Integer code = zoneDictionary.get(zone);
+    if (code != null) {
+      for (int i = zoneOffsets[code]; i < zoneOffsets[code + 1]; i++) {
+        result.add(toStaff(zoneRows[i]));
+      }
+    }
+    return result;
+  }
+
+  /** All employees whose shift starts between the two minutes of the day (end exclusive). */
+  public List<Staff> findByShiftStart(int fromMinute, int toMinute) {
+    List<Staff> result = new ArrayList<>();
+    for (int i = firstStartingAt(fromMinute); i < size; i++) {
+      int row = rowsByShiftStart[i];
+      if (shiftStarts[row] >= toMinute) {
+        break;
+      }
+      result.add(toStaff(row));
+    }
+    return result;
+  }
+
+  /**
+   * All employees who are on shift at some time during the window from fromMinute to toMinute (end
+   * exclusive), in the order of their shift start. If toMinute is before fromMinute, the window
+   * crosses midnight. Night shifts (like 22:00-06:00) are handled the same way. A shift whose start
+   * and end are equal lasts 24 hours.
+   */
+  public List<Staff> findOnShift(int fromMinute, int toMinute) {
+    if (fromMinute < 0
+        || fromMinute > MINUTES_PER_DAY
+        || toMinute < 0
+        || toMinute > MINUTES_PER_DAY) {
+      throw new IllegalArgumentException("Minutes must be between 0 and " + MINUTES_PER_DAY);
+    }
+    List<Staff> result = new ArrayList<>();
+    int from = fromMinute % MINUTES_PER_DAY;
+    int window = Math.floorMod(toMinute - fromMinute, MINUTES_PER_DAY);
+    if (window == 0 || size == 0) {
+      return result;
+    }
+    // Only shifts that start inside the window or less than maxShiftLength before it can overlap
+    // it. Those are a range of the start index (two ranges if it crosses midnight), the rest of the
+    // day is skipped.
+    int first = Math.floorMod(from - maxShiftLength + 1, MINUTES_PER_DAY);
+    int span = maxShiftLength - 1 + window;
+    if (span >= MINUTES_PER_DAY) {
+      collectOnShift(0, size, from, window, result);
+    } else if (first + span <= MINUTES_PER_DAY) {
+      collectOnShift(firstStartingAt(first), firstStartingAt(first + span), from, window, result);
+    } else {
+      collectOnShift(firstStartingAt(first), size, from, window, result);
+      collectOnShift(0, firstStartingAt(first + span - MINUTES_PER_DAY), from, window, result);
+    }
+    return result;
+  }
+
+  // Adds the rows at the given positions of the start index whose shift overlaps the window.
+  private void collectOnShift(int begin, int end, int from, int window, List<Staff> result) {
+    for (int i = begin; i < end; i++) {
+      int row = rowsByShiftStart[i];
+      int start = shiftStarts[row];
+      // On a 24 hour clock two intervals overlap if one of them starts inside the other.
+      if (Math.floorMod(start - from, MINUTES_PER_DAY) < window
+          || Math.floorMod(from - start, MINUTES_PER_DAY) < shiftLength(row)) {
+        result.add(toStaff(row));
+      }
+    }
+  }
+
+  private int shiftLength(int row) {
+    int length = Math.floorMod(shiftEnds[row] - shiftStarts[row], MINUTES_PER_DAY);
+    return length == 0 ? MINUTES_PER_DAY : length;
+  }
+
+  // Binary search for the first position in the sorted index whose shift starts at or after minute.
+  private int firstStartingAt(int minute) {
+    int low = 0;
+    int high = size;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (shiftStarts[rowsByShiftStart[middle]] < minute) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  private Staff toStaff(int row) {
+    return new Staff(
+        ids[row], names[nameCodes[row]], zones[zoneCodes[row]], shiftStarts[row], shiftEnds[row]);
+  }
+
+  private int slot(int id) {
+    return (id * 0x9E3779B9) >>> 1 & (idTable.length - 1);
+  }
+
+  private static StaffRegister loadDefault() {
+    try {
+      String file = System.getProperty(FILE_PROPERTY);
+      if (file != null) {
+        return load(Paths.get(file));
+      }
+      InputStream in = StaffRegister.class.getClassLoader().getResourceAsStream(DEFAULT_RESOURCE);
+      if (in == null) {
+        return new StaffRegister(new Columns());
+      }
+      try (BufferedReader reader =
+          new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+        return load(reader);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not load the staff register", e);
+    }
+  }
+
+  static StaffRegister load(Path file) throws IOException {
+    try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      return load(reader);
+    }
+  }
+
+  // Format: one employee per line "id,name,zone,HH:mm,HH:mm". Lines starting with # are comments.
+  static StaffRegister load(BufferedReader reader) throws IOException {
+    Columns columns = new Columns();
+    String line;
+    int lineNumber = 0;
+    while ((line = reader.readLine()) != null) {
+      lineNumber++;
+      if (line.isEmpty() || line.charAt(0) == '#') {
+        continue;
+      }
+      int first = line.indexOf(',');
+      int second = line.indexOf(',', first + 1);
+      int third = line.indexOf(',', second + 1);
+      int fourth = line.indexOf(',', third + 1);
+      if (first < 0 || second < 0 || third < 0 || fourth < 0) {
+        throw new IllegalArgumentException("Line " + lineNumber + " is not a valid staff entry");
+      }
+      int start = parseTime(line, third + 1, lineNumber);
+      int end = parseTime(line, fourth + 1, lineNumber);
+      columns.add(
+          Integer.parseInt(line, 0, first, 10),
+          line.substring(first + 1, second),
+          line.substring(second + 1, third),
+          start,
+          end);
+    }
+    return new StaffRegister(columns);
+  }
+
+  private static int parseTime(String line, int index, int lineNumber) {
+    if (line.length() < index + 5 || line.charAt(index + 2) != ':') {
+      throw new IllegalArgumentException("Line " + lineNumber + " has an invalid time");
+    }
+    int hours = (line.charAt(index) - '0') * 10 + line.charAt(index + 1) - '0';
+    int minutes = (line.charAt(index + 3) - '0') * 10 + line.charAt(index + 4) - '0';
+    if (hours < 0 || hours > 23 || minutes < 0 || minutes > 59) {
+      throw new IllegalArgumentException("Line " + lineNumber + " has an invalid time");
+    }
+    return hours * 60 + minutes;
+  }
+
+  // Growable columns used only while loading. Once loaded the arrays are trimmed to the real size.
+  private static final class Columns {
+    private int size;
+    private int[] ids = new int[16];
+    private int[] nameCodes = new int[16];
+    private short[] zoneCodes = new short[16];
+    private short[] shiftStarts = new short[16];
+    private short[] shiftEnds = new short[16];
+    private final List<String> names = new ArrayList<>();
+    private final List<String> zones = new ArrayList<>();
+    private final Map<String, Integer> nameDictionary = new HashMap<>();
+    private final Map<String, Integer> zoneDictionary = new HashMap<>();
+
+    private void add(int id, String name, String zone, int shiftStart, int shiftEnd) {
+      if (size == ids.length) {
+        int capacity = size * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        nameCodes = Arrays.copyOf(nameCodes, capacity);
+        zoneCodes = Arrays.copyOf(zoneCodes, capacity);
+        shiftStarts = Arrays.copyOf(shiftStarts, capacity);
+        shiftEnds = Arrays.copyOf(shiftEnds, capacity);
+      }
+      int zoneCode = code(zone, zones, zoneDictionary);
+      if (zoneCode > Short.MAX_VALUE) {
+        throw new IllegalArgumentException("Too many zones");
+      }
+      ids[size] = id;
+      nameCodes[size] = code(name, names, nameDictionary);
+      zoneCodes[size] = (short) zoneCode;
+      shiftStarts[size] = (short) shiftStart;
+      shiftEnds[size] = (short) shiftEnd;
+      size++;
+    }
+
+    private static int code(String value, List<String> values, Map<String, Integer> dictionary) {
+      Integer code = dictionary.get(value);
+      if (code == null) {
+        code = values.size();
+        values.add(value);
+        dictionary.put(value, code);
+      }
+      return code;
+    }
+  }
+
+  public static void main(String[] args) {
+    StaffRegister register = StaffRegister.getInstance();
+    System.out.println(register.findById(1003));
+    System.out.println(register.findByZone("Savanna"));
+    System.out.println(register.findByShiftStart(6 * 60, 9 * 60));
+    System.out.println(register.findOnShift(23 * 60, 60)); // also the night shifts
   }
 }
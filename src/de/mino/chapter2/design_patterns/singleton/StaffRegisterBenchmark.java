@@ -0,0 +1,221 @@
+package de.mino.chapter2.design_patterns.singleton;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the columnar {@link StaffRegister} against a naive {@code List<Staff>} that is scanned
+ * for every lookup: load time, heap footprint and lookup latency.
+ *
+ * <p>Usage: {@code StaffRegisterBenchmark [records]}
+ */
+public class StaffRegisterBenchmark {
+
+  private static final String[] ZONES = {
+    "Savanna", "Aquarium", "Petting Zoo", "Reptile House", "Aviary", "Rainforest", "Arctic", "Farm"
+  };
+
+  public static void main(String[] args) throws IOException {
+    int records = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+    Path file = Files.createTempFile("staff", ".csv");
+    try {
+      write(file, records);
+
+      long heapBefore = usedHeap();
+      long start = System.nanoTime();
+      StaffRegister register = StaffRegister.load(file);
+      long registerLoad = System.nanoTime() - start;
+      long registerHeap = usedHeap() - heapBefore;
+
+      heapBefore = usedHeap();
+      start = System.nanoTime();
+      List<Staff> list = loadList(file);
+      long listLoad = System.nanoTime() - start;
+      long listHeap = usedHeap() - heapBefore;
+
+      System.out.printf("%d records%n", records);
+      System.out.printf("\t\tStaffRegister\tList<Staff>%n");
+      System.out.printf(
+          "load ms\t\t%d\t\t%d%n", registerLoad / 1_000_000, listLoad / 1_000_000);
+      System.out.printf("heap MB\t\t%d\t\t%d%n", registerHeap >> 20, listHeap >> 20);
+
+      Random random = new Random(42);
+      int lookups = 1_000;
+      for (int round = 0; round < 2; round++) {
+        // The first round is the warm-up.
+        long registerTime = 0;
+        long listTime = 0;
+        int found = 0;
+        for (int i = 0; i < lookups; i++) {
+          int id = random.nextInt(records);
+          start = System.nanoTime();
+          found += register.findById(id) != null ? 1 : 0;
+          registerTime += System.nanoTime() - start;
+          start = System.nanoTime();
+          found += findById(list, id) != null ? 1 : 0;
+          listTime += System.nanoTime() - start;
+        }
+        if (found != 2 * lookups) {
+          throw new IllegalStateException("Lookups did not find every employee");
+        }
+        if (round == 1) {
+          System.out.printf(
+              "by id us\t%.2f\t\t%.2f%n",
+              registerTime / 1000.0 / lookups, listTime / 1000.0 / lookups);
+        }
+      }
+
+      int zoneLookups = 20;
+      start = System.nanoTime();
+      for (int i = 0; i < zoneLookups; i++) {
+        register.findByZone(ZONES[i % ZONES.length]);
+      }
+      long registerZone = System.nanoTime() - start;
+      start = System.nanoTime();
+      for (int i = 0; i < zoneLookups; i++) {
+        findByZone(list, ZONES[i % ZONES.length]);
+      }
+      long listZone = System.nanoTime() - start;
+      System.out.printf(
+          "by zone ms\t%.2f\t\t%.2f%n",
+          registerZone / 1e6 / zoneLookups, listZone / 1e6 / zoneLookups);
+
+      // A one hour window, so only a small part of the register matches.
+      start = System.nanoTime();
+      for (int i = 0; i < zoneLookups; i++) {
+        register.findByShiftStart(8 * 60, 9 * 60);
+      }
+      long registerShift = System.nanoTime() - start;
+      start = System.nanoTime();
+      for (int i = 0; i < zoneLookups; i++) {
+        findByShiftStart(list, 8 * 60, 9 * 60);
+      }
+      long listShift = System.nanoTime() - start;
+      System.out.printf(
+          "by shift ms\t%.2f\t\t%.2f%n",
+          registerShift / 1e6 / zoneLookups, listShift / 1e6 / zoneLookups);
+
+      // Everyone on shift during the hour after midnight, including the night shifts.
+      start = System.nanoTime();
+      for (int i = 0; i < zoneLookups; i++) {
+        register.findOnShift(0, 60);
+      }
+      long registerOnShift = System.nanoTime() - start;
+      start = System.nanoTime();
+      for (int i = 0; i < zoneLookups; i++) {
+        findOnShift(list, 0, 60);
+      }
+      long listOnShift = System.nanoTime() - start;
+      if (register.findOnShift(0, 60).size() != findOnShift(list, 0, 60).size()) {
+        throw new IllegalStateException("Shift lookups found different employees");
+      }
+      System.out.printf(
+          "on shift ms\t%.2f\t\t%.2f%n",
+          registerOnShift / 1e6 / zoneLookups, listOnShift / 1e6 / zoneLookups);
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  private static void write(Path file, int records) throws IOException {
+    Random random = new Random(7);
+    try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      for (int id = 0; id < records; id++) {
+        // Shifts of 4 to 8 hours, the ones starting late in the evening end after midnight.
+        int start = random.nextInt(24 * 60);
+        int end = (start + 4 * 60 + random.nextInt(4 * 60)) % (24 * 60);
+        writer.write(
+            String.format(
+                "%d,Keeper %d,%s,%02d:%02d,%02d:%02d%n",
+                id,
+                random.nextInt(5_000),
+                ZONES[random.nextInt(ZONES.length)],
+                start / 60,
+                start % 60,
+                end / 60,
+                end % 60));
+      }
+    }
+  }
+
+  private static List<Staff> loadList(Path file) throws IOException {
+    List<Staff> list = new ArrayList<>();
+    try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        String[] parts = line.split(",");
+        list.add(
+            new Staff(
+                Integer.parseInt(parts[0]),
+                parts[1],
+                parts[2],
+                minutes(parts[3]),
+                minutes(parts[4])));
+      }
+    }
+    return list;
+  }
+
+  private static int minutes(String time) {
+    return Integer.parseInt(time.substring(0, 2)) * 60 + Integer.parseInt(time.substring(3));
+  }
+
+  private static Staff findById(List<Staff> list, int id) {
+    for (Staff staff : list) {
+      if (staff.getId() == id) {
+        return staff;
+      }
+    }
+    return null;
+  }
+
+  private static List<Staff> findByZone(List<Staff> list, String zone) {
+    List<Staff> result = new ArrayList<>();
+    for (Staff staff : list) {
+      if (staff.getZone().equals(zone)) {
+        result.add(staff);
+      }
+    }
+    return result;
+  }
+
+  private static List<Staff> findByShiftStart(List<Staff> list, int from, int to) {
+    List<Staff> result = new ArrayList<>();
+    for (Staff staff : list) {
+      if (staff.getShiftStart() >= from && staff.getShiftStart() < to) {
+        result.add(staff);
+      }
+    }
+    return result;
+  }
+
+  // Shifts with an end before their start go past midnight. The window must not (from < to).
+  private static List<Staff> findOnShift(List<Staff> list, int from, int to) {
+    List<Staff> result = new ArrayList<>();
+    for (Staff staff : list) {
+      int start = staff.getShiftStart();
+      int end = staff.getShiftEnd() > start ? staff.getShiftEnd() : staff.getShiftEnd() + 24 * 60;
+      // The window is compared on the day the shift starts and on the next day.
+      if (start < to && end > from || start < to + 24 * 60 && end > from + 24 * 60) {
+        result.add(staff);
+      }
+    }
+    return result;
+  }
+
+  // Only a rough number, but good enough to compare the two layouts.
+  private static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
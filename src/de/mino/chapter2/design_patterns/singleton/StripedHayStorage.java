@@ -0,0 +1,115 @@
+package de.mino.chapter2.design_patterns.singleton;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Sharded variant of the {@link HayStorage} singleton. Instead of one global quantity there is one
+ * small depot (stripe) per core. Each thread works on "its" depot, so threads on different cores
+ * rarely touch the same memory. Only when the local depot runs short, hay is taken (stolen) from
+ * the neighbouring depots.
+ *
+ * <p>Callers get it with {@code HayStorage.getInstance(HayStorage.Mode.STRIPED)}, behind the same
+ * {@link HayDepot} interface as the other storages.
+ */
+class StripedHayStorage implements HayDepot {
+
+  // Every depot gets its own 64 byte cache line (16 ints) so two cores updating neighbouring depots
+  // don't keep invalidating each other's cache (false sharing).
+  private static final int PADDING = 16;
+
+  private final int stripes;
+  private final AtomicIntegerArray depots;
+  // Only held while hay is collected from the neighbours, the fast path never takes it.
+  private final Object stealLock = new Object();
+
+  private StripedHayStorage(int stripes) {
+    this.stripes = stripes;
+    this.depots = new AtomicIntegerArray(stripes * PADDING);
+  }
+
+  // The number of depots is the number of cores rounded up to a power of two, so we can pick a depot
+  // with a cheap bit mask instead of a modulo.
+  private static final StripedHayStorage instance =
+      new StripedHayStorage(
+          Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1));
+
+  static StripedHayStorage getInstance() {
+    return instance;
+  }
+
+  @Override
+  public void addHay(int amount) {
+    depots.addAndGet(localDepot(), amount);
+  }
+
+  @Override
+  public boolean removeHay(int amount) {
+    int local = localDepot();
+    // Fast path: the local depot has enough hay, so only our own stripe is touched.
+    while (true) {
+      int current = depots.get(local);
+      if (current < amount) {
+        break;
+      }
+      if (depots.compareAndSet(local, current, current - amount)) {
+        return true;
+      }
+    }
+    // Slow path: collect the hay from our own depot and then from the neighbours, one after another.
+    // Only one thread at a time does this. Otherwise two threads could each collect a part of the
+    // hay, neither gets enough and both refuse, although the total would have been enough for one.
+    synchronized (stealLock) {
+      int taken = 0;
+      while (true) {
+        for (int i = 0; i < stripes && taken < amount; i++) {
+          taken += take(((local / PADDING + i) & (stripes - 1)) * PADDING, amount - taken);
+        }
+        if (taken == amount) {
+          return true;
+        }
+        // Other threads kept adding to depots we had already visited. If the depots now hold
+        // enough, we collect again instead of refusing.
+        if (taken + getHayQuantity() < amount) {
+          break;
+        }
+      }
+      // Not enough hay in the whole storage. We give back what we collected (to our own depot) and
+      // refuse, like HayStorage does. A depot never drops below zero, so the total can't either.
+      if (taken > 0) {
+        depots.addAndGet(local, taken);
+      }
+      return false;
+    }
+  }
+
+  // Takes up to 'wanted' hay from a single depot and returns how much we actually got.
+  private int take(int depot, int wanted) {
+    while (true) {
+      int current = depots.get(depot);
+      int share = Math.min(current, wanted);
+      if (share <= 0) {
+        return 0;
+      }
+      if (depots.compareAndSet(depot, current, current - share)) {
+        return share;
+      }
+    }
+  }
+
+  // The total is only a relaxed snapshot: the depots are read one after another, so hay that is
+  // moved between depots at the same time might be missed or counted twice for a moment.
+  @Override
+  public int getHayQuantity() {
+    int total = 0;
+    for (int i = 0; i < stripes; i++) {
+      total += depots.get(i * PADDING);
+    }
+    return total;
+  }
+
+  private int localDepot() {
+    // Spread the thread ids so consecutive ids end up on different depots.
+    long id = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+    return ((int) (id >>> 32) & (stripes - 1)) * PADDING;
+  }
+}
@@ -0,0 +1,50 @@
+package de.mino.chapter2.design_patterns.singleton;
+
+/**
+ * Scaling benchmark for 1 to N threads of the synchronized {@link HayStorage}, the lock-free {@link
+ * AtomicHayStorage} and the sharded {@link StripedHayStorage}. The threads restock a little more
+ * than they withdraw, so most withdrawals can be served from the local depot of the striped
+ * storage, which is the normal situation during the day.
+ *
+ * <p>Usage: {@code StripedHayStorageBenchmark [maxThreads] [opsPerThread]}
+ */
+public class StripedHayStorageBenchmark {
+
+  public static void main(String[] args) throws InterruptedException {
+    int maxThreads =
+        args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+    int opsPerThread = args.length > 1 ? Integer.parseInt(args[1]) : 2_000_000;
+
+    HayDepot synced = HayStorage.getInstance(HayStorage.Mode.SYNCHRONIZED);
+    HayDepot atomic = HayStorage.getInstance(HayStorage.Mode.LOCK_FREE);
+    HayDepot striped = HayStorage.getInstance(HayStorage.Mode.STRIPED);
+
+    run("warm-up", 2, opsPerThread / 4, synced);
+    run("warm-up", 2, opsPerThread / 4, atomic);
+    run("warm-up", 2, opsPerThread / 4, striped);
+
+    System.out.println("threads\tsynchronized\tlock-free\tstriped\t(ops/ms)");
+    for (int threads = 1; threads <= maxThreads; threads++) {
+      double s = run("sync", threads, opsPerThread, synced);
+      double a = run("cas", threads, opsPerThread, atomic);
+      double st = run("striped", threads, opsPerThread, striped);
+      System.out.printf("%d\t%.0f\t\t%.0f\t\t%.0f%n", threads, s, a, st);
+    }
+  }
+
+  private static double run(String name, int threads, int opsPerThread, HayDepot depot)
+      throws InterruptedException {
+    // Every run leaves about threads * opsPerThread / 2 hay behind. Without emptying the storage
+    // first, the quantity would keep growing from run to run until it overflows an int.
+    depot.removeHay(depot.getHayQuantity());
+    return HayStorageBenchmark.run(
+        name,
+        threads,
+        opsPerThread,
+        5,
+        4,
+        depot::addHay,
+        depot::removeHay,
+        depot::getHayQuantity);
+  }
+}
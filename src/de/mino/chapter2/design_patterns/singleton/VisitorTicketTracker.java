@@ -1,5 +1,11 @@
 package de.mino.chapter2.design_patterns.singleton;
 
+import java.time.LocalDate;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
 /**
  * Example 3: Lazy instantiation of Singletons. Delaying the creation of the singleton until the
  * first time the getInstance() method is called.
@@ -41,6 +47,79 @@ public class VisitorTicketTracker {
     return instanceSafe;
   }
 
+  // Initialization-on-demand holder: The nested class is only loaded (and so the instance only
+  // created) the first time getInstanceOnDemand() accesses it. The JVM guarantees that class
+  // initialization happens exactly once and is visible to all threads, so this is lazy and
+  // thread-safe without any synchronized or volatile on the read path.
+  private static class Holder {
+    private static final VisitorTicketTracker INSTANCE = new VisitorTicketTracker();
+  }
+
+  public static VisitorTicketTracker getInstanceOnDemand() {
+    return Holder.INSTANCE;
+  }
+
   // Data access methods
-  // ...
+
+  // The three accessors above create their own objects (the unsafe getInstance() even more than
+  // one under contention). So the data is static and shared by all of them: a ticket ID is never
+  // issued twice and every visitor is counted in the same tally, no matter which accessor the
+  // caller used.
+
+  // Every thread reserves a whole block of ticket IDs at once and then hands them out from its own
+  // block. The shared counter is touched only once per block instead of once per ticket.
+  static final int TICKET_BLOCK_SIZE = 1024;
+
+  private static final AtomicLong nextBlockStart = new AtomicLong(1);
+  // [0] = next ID to hand out, [1] = end of the block (exclusive)
+  private static final ThreadLocal<long[]> ticketBlock = ThreadLocal.withInitial(() -> new long[2]);
+  private static final ConcurrentMap<LocalDate, DayTally> tallies = new ConcurrentHashMap<>();
+  private static final AdmissionRateWindow admissions = new AdmissionRateWindow();
+
+  private static final class DayTally {
+    private final LongAdder sold = new LongAdder();
+    private final LongAdder used = new LongAdder();
+  }
+
+  /**
+   * Sells a ticket for the given day. The returned IDs are unique and increase monotonically for
+   * every turnstile thread. Across threads they are only roughly ordered since every thread uses
+   * its own block.
+   */
+  public long issueTicket(LocalDate day) {
+    long[] block = ticketBlock.get();
+    if (block[0] == block[1]) {
+      block[0] = nextBlockStart.getAndAdd(TICKET_BLOCK_SIZE);
+      block[1] = block[0] + TICKET_BLOCK_SIZE;
+    }
+    tally(day).sold.increment();
+    return block[0]++;
+  }
+
+  // Called when a visitor passes the turnstile with a ticket for the given day.
+  public void useTicket(LocalDate day) {
+    tally(day).used.increment();
+    admissions.record();
+  }
+
+  // Live admission rates of the last minute. Doesn't block the turnstiles.
+  public AdmissionRateWindow.Snapshot getAdmissionRates() {
+    return admissions.snapshot();
+  }
+
+  public long getTicketsSold(LocalDate day) {
+    DayTally tally = tallies.get(day);
+    return tally == null ? 0 : tally.sold.sum();
+  }
+
+  public long getTicketsUsed(LocalDate day) {
+    DayTally tally = tallies.get(day);
+    return tally == null ? 0 : tally.used.sum();
+  }
+
+  private DayTally tally(LocalDate day) {
+    // The plain get() is lock-free. computeIfAbsent() is only needed once per day.
+    DayTally tally = tallies.get(day);
+    return tally != null ? tally : tallies.computeIfAbsent(day, d -> new DayTally());
+  }
 }
@@ -0,0 +1,96 @@
+package de.mino.chapter2.design_patterns.singleton;
+
+import java.time.LocalDate;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Compares the three ways to get the lazy {@link VisitorTicketTracker} singleton (unsynchronized,
+ * double-checked locking and the holder class) and the block-based ticket issuing against a
+ * single shared counter.
+ *
+ * <p>Usage: {@code VisitorTicketTrackerBenchmark [threads] [callsPerThread]}
+ */
+public class VisitorTicketTrackerBenchmark {
+
+  private interface Operation {
+    long run();
+  }
+
+  public static void main(String[] args) throws InterruptedException {
+    int threads =
+        args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+    int calls = args.length > 1 ? Integer.parseInt(args[1]) : 50_000_000;
+
+    System.out.println("--- getInstance variants (ns/call) ---");
+    for (int round = 0; round < 3; round++) {
+      // The first round is the warm-up.
+      System.out.printf(
+          "getInstance %.2f\tgetInstanceThreadSafe %.2f\tgetInstanceOnDemand %.2f%n",
+          accessor(VisitorTicketTracker::getInstance, calls),
+          accessor(VisitorTicketTracker::getInstanceThreadSafe, calls),
+          accessor(VisitorTicketTracker::getInstanceOnDemand, calls));
+    }
+
+    System.out.println("\n--- Issuing tickets with " + threads + " threads (tickets/ms) ---");
+    VisitorTicketTracker tracker = VisitorTicketTracker.getInstanceOnDemand();
+    LocalDate today = LocalDate.now();
+    AtomicLong sharedCounter = new AtomicLong();
+    int tickets = calls / 10;
+    for (int round = 0; round < 3; round++) {
+      System.out.printf(
+          "issueTicket (per-thread blocks + day tally) %.0f\tshared counter only %.0f%n",
+          run(threads, tickets, () -> tracker.issueTicket(today)),
+          run(threads, tickets, sharedCounter::incrementAndGet));
+    }
+  }
+
+  private static double accessor(Supplier<VisitorTicketTracker> accessor, int calls) {
+    long start = System.nanoTime();
+    int sink = 0;
+    for (int i = 0; i < calls; i++) {
+      if (accessor.get() != null) {
+        sink++;
+      }
+    }
+    long elapsed = System.nanoTime() - start;
+    // Use the result so the JIT can't remove the loop.
+    if (sink != calls) {
+      System.out.println(sink);
+    }
+    return elapsed / (double) calls;
+  }
+
+  private static double run(int threads, int callsPerThread, Operation operation)
+      throws InterruptedException {
+    CountDownLatch start = new CountDownLatch(1);
+    CountDownLatch done = new CountDownLatch(threads);
+    for (int t = 0; t < threads; t++) {
+      new Thread(
+              () -> {
+                try {
+                  start.await();
+                } catch (InterruptedException e) {
+                  Thread.currentThread().interrupt();
+                  return;
+                }
+                long last = 0;
+                for (int i = 0; i < callsPerThread; i++) {
+                  long id = operation.run();
+                  if (id <= last) {
+                    throw new IllegalStateException("IDs are not increasing: " + id + " " + last);
+                  }
+                  last = id;
+                }
+                done.countDown();
+              })
+          .start();
+    }
+    long startTime = System.nanoTime();
+    start.countDown();
+    done.await();
+    long elapsed = System.nanoTime() - startTime;
+    return (double) threads * callsPerThread / (elapsed / 1_000_000.0);
+  }
+}
@@ -19,18 +19,36 @@ public class Animal {
   }
 
   public void setSpecies(String species) {
-    if (species == null || species.trim().length() == 0) {
+    if (!isValidSpecies(species)) {
       throw new IllegalArgumentException("Species is required");
     }
     this.species = species;
   }
 
+  // Same check as 'species.trim().length() != 0' (trim() removes all chars <= ' '), but without
+  // creating the trimmed copy of the String.
+  public static boolean isValidSpecies(CharSequence species) {
+    if (species == null) {
+      return false;
+    }
+    for (int i = 0; i < species.length(); i++) {
+      if (species.charAt(i) > ' ') {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public static boolean isValidAge(int age) {
+    return age >= 0;
+  }
+
   public int getAge() {
     return age;
   }
 
   public void setAge(int age) {
-    if (age < 0) {
+    if (!isValidAge(age)) {
       throw new IllegalArgumentException("Age cannot be a negative number");
     }
     this.age = age;
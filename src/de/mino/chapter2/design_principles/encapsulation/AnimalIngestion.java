@@ -0,0 +1,201 @@
+package de.mino.chapter2.design_principles.encapsulation;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Creates many {@link Animal}s at once, for example for an import. Every row is checked with the
+ * same rules as the setters, but an invalid row doesn't throw an exception: it is skipped and
+ * written to a {@link RejectionReport}. The checks don't allocate anything.
+ *
+ * <p>Large inputs are split into parts that are checked in parallel on the common ForkJoinPool.
+ */
+public final class AnimalIngestion {
+
+  // Below this size splitting costs more than it gains.
+  private static final int THRESHOLD = 16_384;
+
+  public enum Reason {
+    MISSING_SPECIES,
+    BLANK_SPECIES,
+    NEGATIVE_AGE
+  }
+
+  private AnimalIngestion() {}
+
+  /**
+   * Creates an Animal for every row where species[row] and ages[row] are valid.
+   *
+   * @throws IllegalArgumentException if the arrays don't have the same length
+   */
+  public static Result ingest(String[] species, int[] ages) {
+    if (species.length != ages.length) {
+      throw new IllegalArgumentException(
+          species.length + " species but " + ages.length + " ages");
+    }
+    Animal[] animals = new Animal[species.length];
+    RejectionReport report =
+        ForkJoinPool.commonPool().invoke(new IngestTask(species, ages, animals, 0, species.length));
+    return new Result(animals, report);
+  }
+
+  // Returns null if the row is valid. Same rules as Animal.setSpecies() and Animal.setAge().
+  private static Reason check(String species, int age) {
+    if (species == null) {
+      return Reason.MISSING_SPECIES;
+    }
+    if (!Animal.isValidSpecies(species)) {
+      return Reason.BLANK_SPECIES;
+    }
+    if (!Animal.isValidAge(age)) {
+      return Reason.NEGATIVE_AGE;
+    }
+    return null;
+  }
+
+  // Each part fills its rows of the shared animals array (so no merging is needed for them) and
+  // returns the rejections of its rows. The reports are joined in row order.
+  private static final class IngestTask extends RecursiveTask<RejectionReport> {
+    private static final long serialVersionUID = 1L;
+
+    private final String[] species;
+    private final int[] ages;
+    private final Animal[] animals;
+    private final int from;
+    private final int to;
+
+    private IngestTask(String[] species, int[] ages, Animal[] animals, int from, int to) {
+      this.species = species;
+      this.ages = ages;
+      this.animals = animals;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected RejectionReport compute() {
+      if (to - from <= THRESHOLD) {
+        RejectionReport report = new RejectionReport();
+        for (int row = from; row < to; row++) {
+          Reason reason = check(species[row], ages[row]);
+          if (reason == null) {
+            Animal animal = new Animal(species[row]);
+            animal.setAge(ages[row]);
+            animals[row] = animal;
+          } else {
+            report.add(row, reason);
+          }
+        }
+        return report;
+      }
+      int middle = (from + to) >>> 1;
+      IngestTask left = new IngestTask(species, ages, animals, from, middle);
+      left.fork();
+      RejectionReport right = new IngestTask(species, ages, animals, middle, to).compute();
+      RejectionReport report = left.join();
+      report.addAll(right);
+      return report;
+    }
+  }
+
+  /** The created animals, at the same index as their input row. */
+  public static final class Result {
+    private final Animal[] animals;
+    private final RejectionReport report;
+
+    private Result(Animal[] animals, RejectionReport report) {
+      this.animals = animals;
+      this.report = report;
+    }
+
+    public int getRowCount() {
+      return animals.length;
+    }
+
+    /** The animal of the given input row or null if the row was rejected. */
+    public Animal getAnimal(int row) {
+      return animals[row];
+    }
+
+    public int getAcceptedCount() {
+      return animals.length - report.size();
+    }
+
+    public RejectionReport getReport() {
+      return report;
+    }
+  }
+
+  /** The rejected rows in ascending order, with the reason for each. Stored as primitive arrays. */
+  public static final class RejectionReport {
+    private static final Reason[] REASONS = Reason.values();
+
+    private int size;
+    private int[] rows = new int[0];
+    private byte[] reasons = new byte[0];
+
+    private RejectionReport() {}
+
+    private void add(int row, Reason reason) {
+      ensureCapacity(size + 1);
+      rows[size] = row;
+      reasons[size] = (byte) reason.ordinal();
+      size++;
+    }
+
+    private void addAll(RejectionReport other) {
+      ensureCapacity(size + other.size);
+      System.arraycopy(other.rows, 0, rows, size, other.size);
+      System.arraycopy(other.reasons, 0, reasons, size, other.size);
+      size += other.size;
+    }
+
+    private void ensureCapacity(int capacity) {
+      if (capacity > rows.length) {
+        int newCapacity = Math.max(capacity, Math.max(rows.length * 2, 8));
+        rows = Arrays.copyOf(rows, newCapacity);
+        reasons = Arrays.copyOf(reasons, newCapacity);
+      }
+    }
+
+    public int size() {
+      return size;
+    }
+
+    public int getRow(int index) {
+      checkIndex(index);
+      return rows[index];
+    }
+
+    public Reason getReason(int index) {
+      checkIndex(index);
+      return REASONS[reasons[index]];
+    }
+
+    /** How many rows were rejected for each reason, indexed by Reason.ordinal(). */
+    public int[] countByReason() {
+      int[] counts = new int[REASONS.length];
+      for (int i = 0; i < size; i++) {
+        counts[reasons[i]]++;
+      }
+      return counts;
+    }
+
+    private void checkIndex(int index) {
+      if (index < 0 || index >= size) {
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+      }
+    }
+
+    @Override
+    public String toString() {
+      int[] counts = countByReason();
+      StringBuilder result = new StringBuilder().append(size).append(" rejected");
+      for (Reason reason : REASONS) {
+        result.append(", ").append(reason).append('=').append(counts[reason.ordinal()]);
+      }
+      return result.toString();
+    }
+  }
+}
@@ -0,0 +1,83 @@
+package de.mino.chapter2.design_principles.encapsulation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares {@link AnimalIngestion} against creating the animals one by one with the setters and
+ * catching the IllegalArgumentException of every invalid row.
+ *
+ * <p>Usage: {@code AnimalIngestionBenchmark [rows] [invalid percent]}
+ */
+public class AnimalIngestionBenchmark {
+
+  private static final String[] SPECIES = {
+    "duck", "llama", "lion", "zebra", "penguin", "giraffe", "elephant", "koala"
+  };
+
+  public static void main(String[] args) {
+    int rows = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+    double invalidPercent = args.length > 1 ? Double.parseDouble(args[1]) : 1;
+
+    String[] species = new String[rows];
+    int[] ages = new int[rows];
+    Random random = new Random(42);
+    int invalid = 0;
+    for (int row = 0; row < rows; row++) {
+      species[row] = SPECIES[row % SPECIES.length];
+      ages[row] = row % 40;
+      if (random.nextDouble() * 100 < invalidPercent) {
+        invalid++;
+        // The three kinds of invalid rows.
+        switch (random.nextInt(3)) {
+          case 0:
+            species[row] = null;
+            break;
+          case 1:
+            species[row] = "   ";
+            break;
+          default:
+            ages[row] = -1;
+        }
+      }
+    }
+    System.out.printf(
+        "%d rows, %d invalid, %d cores%n", rows, invalid, Runtime.getRuntime().availableProcessors());
+
+    for (int round = 0; round < 3; round++) {
+      // The first rounds are the warm-up, only the last one is printed.
+      boolean print = round == 2;
+
+      long start = System.nanoTime();
+      List<Animal> animals = new ArrayList<>(rows);
+      List<Integer> rejected = new ArrayList<>();
+      for (int row = 0; row < rows; row++) {
+        try {
+          Animal animal = new Animal(species[row]);
+          animal.setAge(ages[row]);
+          animals.add(animal);
+        } catch (IllegalArgumentException e) {
+          rejected.add(row);
+        }
+      }
+      long oneByOne = System.nanoTime() - start;
+
+      // Let the list become garbage before the next run.
+      animals = null;
+      start = System.nanoTime();
+      AnimalIngestion.Result result = AnimalIngestion.ingest(species, ages);
+      long ingestion = System.nanoTime() - start;
+      if (result.getReport().size() != rejected.size()
+          || result.getAcceptedCount() != rows - invalid) {
+        throw new IllegalStateException("Different number of rejected rows");
+      }
+
+      if (print) {
+        System.out.printf("one by one with exceptions\t%d ms%n", oneByOne / 1_000_000);
+        System.out.printf("AnimalIngestion\t\t\t%d ms%n", ingestion / 1_000_000);
+        System.out.println(result.getReport());
+      }
+    }
+  }
+}
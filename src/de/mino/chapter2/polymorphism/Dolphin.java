@@ -0,0 +1,8 @@
+package de.mino.chapter2.polymorphism;
+
+class Dolphin implements LivesInOcean {
+  @Override
+  public void makeSound() {
+    System.out.println("Dolphin - whistle");
+  }
+}
@@ -0,0 +1,5 @@
+package de.mino.chapter2.polymorphism;
+
+interface LivesInOcean {
+  public void makeSound();
+}
@@ -0,0 +1,203 @@
+package de.mino.chapter2.polymorphism;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Measures what a call to {@link LivesInOcean#makeSound()} costs depending on how many classes
+ * the call site sees: one (monomorphic), two (bimorphic) or Dolphin, Whale and more synthetic
+ * species (megamorphic). Each case is measured with {@link Oceanographer#checkSound} for every
+ * animal and with the batch {@link Oceanographer#checkSounds}, in order and grouped.
+ *
+ * <p>checkSounds() has a loop of its own for every class, but only uses it for runs of several
+ * animals. In the shuffled survey these only exist when the animals are grouped, so the grouped
+ * column shows what the per-class loops save for many species.
+ *
+ * <p>The JIT compiler remembers which classes a call site has seen for the whole run, so measuring
+ * the megamorphic case would spoil the monomorphic one. Like JMH, every case therefore runs in its
+ * own JVM. makeSound() prints, so System.out is replaced by a stream that only counts the lines.
+ *
+ * <p>The default survey is small enough to stay in the CPU cache, otherwise loading the animals
+ * from memory costs more than the calls.
+ *
+ * <p>Usage: {@code OceanDispatchBenchmark [animals] [synthetic species (max 8)]}
+ */
+public class OceanDispatchBenchmark {
+
+  private static final List<Supplier<LivesInOcean>> SYNTHETIC =
+      List.of(
+          Species1::new,
+          Species2::new,
+          Species3::new,
+          Species4::new,
+          Species5::new,
+          Species6::new,
+          Species7::new,
+          Species8::new);
+
+  private static long lines;
+
+  public static void main(String[] args) throws Exception {
+    if (args.length > 0 && args[0].startsWith("--case=")) {
+      runCase(args[0].substring("--case=".length()), args);
+      return;
+    }
+    int animals = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+    int synthetic = args.length > 1 ? Integer.parseInt(args[1]) : 6;
+    System.out.printf("%d animals, ns per animal%n", animals);
+    System.out.printf("\t\t\tcheckSound\tcheckSounds ordered\tcheckSounds grouped%n");
+    for (String name : new String[] {"mono", "bi", "mega"}) {
+      Process process =
+          new ProcessBuilder(
+                  System.getProperty("java.home") + "/bin/java",
+                  "-cp",
+                  System.getProperty("java.class.path"),
+                  OceanDispatchBenchmark.class.getName(),
+                  "--case=" + name,
+                  String.valueOf(animals),
+                  String.valueOf(synthetic))
+              .inheritIO()
+              .start();
+      if (process.waitFor() != 0) {
+        throw new IllegalStateException("Case " + name + " failed");
+      }
+    }
+  }
+
+  private static void runCase(String name, String[] args) {
+    int count = Integer.parseInt(args[1]);
+    int synthetic = Math.min(Integer.parseInt(args[2]), SYNTHETIC.size());
+    List<Supplier<LivesInOcean>> species = new ArrayList<>();
+    species.add(Dolphin::new);
+    String label;
+    switch (name) {
+      case "mono":
+        label = "Dolphin";
+        break;
+      case "bi":
+        species.add(Whale::new);
+        label = "Dolphin, Whale";
+        break;
+      default:
+        species.add(Whale::new);
+        species.addAll(SYNTHETIC.subList(0, synthetic));
+        label = "Dolphin, Whale, " + synthetic + " more";
+    }
+
+    // A survey mixes the species randomly.
+    Random random = new Random(42);
+    List<LivesInOcean> animals = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      animals.add(species.get(i % species.size()).get());
+    }
+    Collections.shuffle(animals, random);
+
+    PrintStream console = System.out;
+    System.setOut(
+        new PrintStream(OutputStream.nullOutputStream()) {
+          @Override
+          public void println(String line) {
+            lines++;
+          }
+        });
+    Oceanographer oceanographer = new Oceanographer();
+    // Every round checks about 10 million animals.
+    int repeats = Math.max(1, 10_000_000 / count);
+    long single = 0;
+    long ordered = 0;
+    long grouped = 0;
+    for (int round = 0; round < 10; round++) {
+      // The first five rounds are the warm-up.
+      long start = System.nanoTime();
+      for (int repeat = 0; repeat < repeats; repeat++) {
+        for (LivesInOcean animal : animals) {
+          oceanographer.checkSound(animal);
+        }
+      }
+      long afterSingle = System.nanoTime();
+      for (int repeat = 0; repeat < repeats; repeat++) {
+        oceanographer.checkSounds(animals, true);
+      }
+      long afterOrdered = System.nanoTime();
+      for (int repeat = 0; repeat < repeats; repeat++) {
+        oceanographer.checkSounds(animals, false);
+      }
+      long afterGrouped = System.nanoTime();
+      if (round >= 5) {
+        single += afterSingle - start;
+        ordered += afterOrdered - afterSingle;
+        grouped += afterGrouped - afterOrdered;
+      }
+    }
+    System.setOut(console);
+    if (lines != 30L * repeats * count) {
+      throw new IllegalStateException("Not every animal made a sound");
+    }
+    double calls = 5.0 * repeats * count;
+    System.out.printf(
+        "%-24s%.2f\t\t%.2f\t\t\t%.2f%n",
+        label, single / calls, ordered / calls, grouped / calls);
+  }
+
+  // Synthetic species, only here to make the call site megamorphic.
+  private static class Species1 implements LivesInOcean {
+    @Override
+    public void makeSound() {
+      System.out.println("Species 1 - click");
+    }
+  }
+
+  private static class Species2 implements LivesInOcean {
+    @Override
+    public void makeSound() {
+      System.out.println("Species 2 - click");
+    }
+  }
+
+  private static class Species3 implements LivesInOcean {
+    @Override
+    public void makeSound() {
+      System.out.println("Species 3 - click");
+    }
+  }
+
+  private static class Species4 implements LivesInOcean {
+    @Override
+    public void makeSound() {
+      System.out.println("Species 4 - click");
+    }
+  }
+
+  private static class Species5 implements LivesInOcean {
+    @Override
+    public void makeSound() {
+      System.out.println("Species 5 - click");
+    }
+  }
+
+  private static class Species6 implements LivesInOcean {
+    @Override
+    public void makeSound() {
+      System.out.println("Species 6 - click");
+    }
+  }
+
+  private static class Species7 implements LivesInOcean {
+    @Override
+    public void makeSound() {
+      System.out.println("Species 7 - click");
+    }
+  }
+
+  private static class Species8 implements LivesInOcean {
+    @Override
+    public void makeSound() {
+      System.out.println("Species 8 - click");
+    }
+  }
+}
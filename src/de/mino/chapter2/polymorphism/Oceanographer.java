@@ -1,7 +1,28 @@
 package de.mino.chapter2.polymorphism;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandles;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
+
 public class Oceanographer {
 
+  // One copy of the SoundRunLoop class per class of animals, created the first time the class is
+  // seen. The copies stay loaded as long as this class is, which is fine for a few dozen species.
+  private static final ClassValue<SoundRun> RUNS =
+      new ClassValue<>() {
+        @Override
+        protected SoundRun computeValue(Class<?> type) {
+          return copySoundRunLoop();
+        }
+      };
+  private static final AtomicInteger copies = new AtomicInteger();
+  // Shorter runs are checked in a loop shared by all classes.
+  private static final int MIN_RUN = 8;
+
   /**
    * Accepts any object whose class implements the LivesInOcean interface.
    */
@@ -9,27 +30,190 @@ public class Oceanographer {
     animal.makeSound();
   }
 
-  public static void main(String[] args) {
-    Oceanographer o = new Oceanographer();
-    o.checkSound(new Dolphin()); // Dolphin - whistle
-    o.checkSound(new Whale()); // Whale - sing
+  /**
+   * Checks the sound of many animals at once.
+   *
+   * <p>In checkSound() 'animal.makeSound()' is a single call site. Once it has seen more than two
+   * classes the JIT compiler can't inline it anymore (megamorphic) and every call goes through the
+   * interface method table. Here the animals are processed in runs of the same class, and every
+   * class has its own loop (see {@link SoundRunLoop}). The call site in such a loop only ever sees
+   * one class and is inlined, however many classes the collection mixes. Runs of only a few animals
+   * (usual when the order is kept) share one loop, looking up the loop of their class would cost
+   * more than the megamorphic calls.
+   *
+   * <p>Grouping costs an extra pass over the animals, so it only pays off for a mix of many
+   * classes. Up to two classes, checkSound() is inlined anyway and keeping the order is faster.
+   *
+   * @param keepOrder true to check the animals in the order of the collection (runs are then only
+   *     as long as the same class repeats), false to allow grouping the animals of a class together
+   */
+  public void checkSounds(Collection<? extends LivesInOcean> animals, boolean keepOrder) {
+    LivesInOcean[] array = animals.toArray(new LivesInOcean[0]);
+    if (keepOrder) {
+      checkInOrder(array);
+    } else {
+      checkGrouped(array);
+    }
   }
-}
 
-interface LivesInOcean {
-  public void makeSound();
-}
+  private static void checkInOrder(LivesInOcean[] array) {
+    int from = 0;
+    while (from < array.length) {
+      Class<?> type = array[from].getClass();
+      int to = from + 1;
+      while (to < array.length && array[to].getClass() == type) {
+        to++;
+      }
+      checkRun(type, array, from, to);
+      from = to;
+    }
+  }
 
-class Dolphin implements LivesInOcean {
-  @Override
-  public void makeSound() {
-    System.out.println("Dolphin - whistle");
+  private static void checkRun(Class<?> type, LivesInOcean[] animals, int from, int to) {
+    if (to - from < MIN_RUN) {
+      // Finding the loop of the class costs more than a few megamorphic calls.
+      for (int i = from; i < to; i++) {
+        animals[i].makeSound();
+      }
+    } else {
+      RUNS.get(type).check(animals, from, to);
+    }
   }
-}
 
-class Whale implements LivesInOcean {
-  @Override
-  public void makeSound() {
-    System.out.println("Whale - sing");
+  // A new class with the bytecode of SoundRunLoop under another name. Only the constant with the
+  // name of the class changes. A lambda wouldn't do: all lambdas of one expression share the same
+  // code, and so the same profile.
+  private static SoundRun copySoundRunLoop() {
+    byte[] template;
+    try (InputStream in = SoundRunLoop.class.getResourceAsStream("SoundRunLoop.class")) {
+      if (in == null) {
+        throw new IllegalStateException("SoundRunLoop.class not found");
+      }
+      template = in.readAllBytes();
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not read SoundRunLoop.class", e);
+    }
+    String name = SoundRunLoop.class.getName().replace('.', '/');
+    byte[] copy = replaceUtf8Constant(template, name, name + "Copy" + copies.incrementAndGet());
+    try {
+      Class<?> type = MethodHandles.lookup().defineClass(copy);
+      return (SoundRun) type.getDeclaredConstructor().newInstance();
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("Could not copy SoundRunLoop", e);
+    }
+  }
+
+  // A CONSTANT_Utf8 entry is the tag 1, the length as two bytes and the characters (plain ASCII
+  // here). Nothing in a class file points to the bytes of a constant, so the entry can be replaced
+  // by one of another length.
+  private static byte[] replaceUtf8Constant(byte[] classFile, String oldValue, String newValue) {
+    byte[] oldEntry = utf8Constant(oldValue);
+    byte[] newEntry = utf8Constant(newValue);
+    for (int i = 0; i <= classFile.length - oldEntry.length; i++) {
+      if (Arrays.equals(classFile, i, i + oldEntry.length, oldEntry, 0, oldEntry.length)) {
+        byte[] result = new byte[classFile.length - oldEntry.length + newEntry.length];
+        System.arraycopy(classFile, 0, result, 0, i);
+        System.arraycopy(newEntry, 0, result, i, newEntry.length);
+        System.arraycopy(
+            classFile,
+            i + oldEntry.length,
+            result,
+            i + newEntry.length,
+            classFile.length - i - oldEntry.length);
+        return result;
+      }
+    }
+    throw new IllegalStateException(oldValue + " not found in the class file");
+  }
+
+  private static byte[] utf8Constant(String value) {
+    byte[] chars = value.getBytes(StandardCharsets.US_ASCII);
+    byte[] entry = new byte[3 + chars.length];
+    entry[0] = 1;
+    entry[1] = (byte) (chars.length >>> 8);
+    entry[2] = (byte) chars.length;
+    System.arraycopy(chars, 0, entry, 3, chars.length);
+    return entry;
+  }
+
+  // Stable counting sort by class (the classes in order of their first appearance, within a class
+  // the original order), then one run per class.
+  private static void checkGrouped(LivesInOcean[] animals) {
+    Class<?>[] types = new Class<?>[8];
+    int[] counts = new int[8];
+    int groupCount = 0;
+    // The group of a class is found in a small open addressing table by the identity hash code of
+    // the class. Mostly the first slot already matches, a branch the CPU predicts well. Searching
+    // the types array instead stops at a different position for every animal.
+    Class<?>[] slots = new Class<?>[16];
+    int[] slotGroups = new int[16];
+    int[] groupOf = new int[animals.length];
+    int previous = 0;
+    for (int i = 0; i < animals.length; i++) {
+      Class<?> type = animals[i].getClass();
+      // Animals of the same class often follow each other, then there is nothing to search.
+      int group = previous;
+      if (type != types[group]) {
+        int slot = System.identityHashCode(type) & (slots.length - 1);
+        Class<?> known;
+        while ((known = slots[slot]) != type && known != null) {
+          slot = (slot + 1) & (slots.length - 1);
+        }
+        if (known != null) {
+          group = slotGroups[slot];
+        } else {
+          group = groupCount++;
+          if (group == types.length) {
+            types = Arrays.copyOf(types, group * 2);
+            counts = Arrays.copyOf(counts, group * 2);
+          }
+          types[group] = type;
+          slots[slot] = type;
+          slotGroups[slot] = group;
+          if (groupCount * 2 > slots.length) {
+            // Keep the table at most half full, otherwise the searches get long.
+            slots = new Class<?>[slots.length * 2];
+            slotGroups = new int[slots.length];
+            for (int other = 0; other < groupCount; other++) {
+              int free = System.identityHashCode(types[other]) & (slots.length - 1);
+              while (slots[free] != null) {
+                free = (free + 1) & (slots.length - 1);
+              }
+              slots[free] = types[other];
+              slotGroups[free] = other;
+            }
+          }
+        }
+      }
+      groupOf[i] = group;
+      counts[group]++;
+      previous = group;
+    }
+    if (groupCount == 1) {
+      checkRun(types[0], animals, 0, animals.length);
+      return;
+    }
+    // Turn the counts into the start position of each group.
+    int[] starts = new int[groupCount + 1];
+    for (int group = 0; group < groupCount; group++) {
+      starts[group + 1] = starts[group] + counts[group];
+    }
+    int[] fill = Arrays.copyOf(starts, groupCount);
+    LivesInOcean[] grouped = new LivesInOcean[animals.length];
+    for (int i = 0; i < animals.length; i++) {
+      grouped[fill[groupOf[i]]++] = animals[i];
+    }
+    for (int group = 0; group < groupCount; group++) {
+      checkRun(types[group], grouped, starts[group], starts[group + 1]);
+    }
+  }
+
+  public static void main(String[] args) {
+    Oceanographer o = new Oceanographer();
+    o.checkSound(new Dolphin()); // Dolphin - whistle
+    o.checkSound(new Whale()); // Whale - sing
+
+    // Dolphin - whistle, Whale - sing, Dolphin - whistle, Whale - sing
+    o.checkSounds(Arrays.asList(new Dolphin(), new Whale(), new Dolphin(), new Whale()), true);
   }
 }
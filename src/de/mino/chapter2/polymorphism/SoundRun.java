@@ -0,0 +1,6 @@
+package de.mino.chapter2.polymorphism;
+
+/** Checks the sound of the animals from index 'from' (inclusive) to 'to' (exclusive). */
+interface SoundRun {
+  void check(LivesInOcean[] animals, int from, int to);
+}
@@ -0,0 +1,20 @@
+package de.mino.chapter2.polymorphism;
+
+/**
+ * The loop of a run of animals of the same class. It is never used directly: {@link
+ * Oceanographer} defines a copy of this class for every class of animals it sees. The JIT compiler
+ * profiles every copy on its own, so the call site in each copy only ever sees one class and is
+ * inlined, no matter how many classes there are.
+ *
+ * <p>Don't refer to SoundRunLoop itself in here (no fields, parameters or methods of this type),
+ * the copies get a different name.
+ */
+final class SoundRunLoop implements SoundRun {
+
+  @Override
+  public void check(LivesInOcean[] animals, int from, int to) {
+    for (int i = from; i < to; i++) {
+      animals[i].makeSound();
+    }
+  }
+}
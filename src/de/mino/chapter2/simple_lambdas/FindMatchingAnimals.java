@@ -32,5 +32,23 @@ public class FindMatchingAnimals {
 
     Animal kangaroo = new Animal("kangaroo", true, false);
     print(kangaroo, a -> a.canHop());
+
+    // For many animals a TraitStore answers the same questions with bitmaps, 64 animals at a time.
+    TraitStore store = new TraitStore();
+    store.add(fish);
+    store.add(kangaroo);
+    store.add(new Animal("frog", true, true));
+    TraitPredicate hopsButCannotSwim =
+        TraitPredicate.has(Trait.CAN_HOP).and(TraitPredicate.has(Trait.CAN_SWIM).negate());
+    System.out.println(store.findAll(hopsButCannotSwim)); // [kangaroo]
+    // A TraitPredicate is still a CheckTrait.
+    print(kangaroo, hopsButCannotSwim);
+
+    // For huge populations a ParallelTraitSearch splits the work between several threads.
+    try (ParallelTraitSearch search = new ParallelTraitSearch(2)) {
+      Animal[] animals = {fish, kangaroo, new Animal("rabbit", true, false)};
+      System.out.println(search.findAll(animals, a -> a.canHop(), true)); // [kangaroo, rabbit]
+      System.out.println(search.count(animals, a -> a.canSwim())); // 1
+    }
   }
 }
@@ -0,0 +1,319 @@
+package de.mino.chapter2.simple_lambdas;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Tests a CheckTrait on a large population with several threads. The animals are split with a
+ * {@link Spliterator} that always cuts its range in half, so the parts the threads of the
+ * ForkJoinPool work on are (almost) the same size.
+ *
+ * <p>{@link #findAll} can keep the order of the animals, or not: unordered every thread adds the
+ * matches to its own buffer and the buffers are appended at the end, which saves merging the
+ * results of the parts in order. {@link #count} doesn't collect anything.
+ *
+ * <p>The search uses its own pool, so a slow CheckTrait doesn't block the common pool other code
+ * relies on. Close the search to stop the threads of that pool.
+ */
+public class ParallelTraitSearch implements AutoCloseable {
+
+  // Parts smaller than this aren't split any further, the tasks would cost more than they save.
+  private static final int MIN_PART_SIZE = 1024;
+
+  private final ForkJoinPool pool;
+  private final boolean ownsPool;
+
+  /** Searches with a new pool of the given number of threads. */
+  public ParallelTraitSearch(int parallelism) {
+    this.pool = new ForkJoinPool(parallelism);
+    this.ownsPool = true;
+  }
+
+  /** Searches with an existing pool, which {@link #close()} leaves running. */
+  public ParallelTraitSearch(ForkJoinPool pool) {
+    this.pool = pool;
+    this.ownsPool = false;
+  }
+
+  public int getParallelism() {
+    return pool.getParallelism();
+  }
+
+  public long count(Animal[] animals, CheckTrait trait) {
+    return count(new RangeSpliterator(animals, 0, animals.length), trait);
+  }
+
+  public long count(List<? extends Animal> animals, CheckTrait trait) {
+    return count(spliterator(animals), trait);
+  }
+
+  /** The matching animals, in the order of the array if ordered is true. */
+  public List<Animal> findAll(Animal[] animals, CheckTrait trait, boolean ordered) {
+    return findAll(new RangeSpliterator(animals, 0, animals.length), trait, ordered);
+  }
+
+  /** The matching animals, in the order of the list if ordered is true. */
+  public List<Animal> findAll(List<? extends Animal> animals, CheckTrait trait, boolean ordered) {
+    return findAll(spliterator(animals), trait, ordered);
+  }
+
+  @Override
+  public void close() {
+    if (ownsPool) {
+      pool.shutdown();
+    }
+  }
+
+  private long count(RangeSpliterator animals, CheckTrait trait) {
+    return pool.invoke(new CountTask(animals, trait, partSize(animals)));
+  }
+
+  private List<Animal> findAll(RangeSpliterator animals, CheckTrait trait, boolean ordered) {
+    if (ordered) {
+      // Every part has its own buffer, the buffers are joined in the order of the parts.
+      List<List<Animal>> parts = pool.invoke(new OrderedTask(animals, trait, partSize(animals)));
+      return concat(parts);
+    }
+    // Every thread has its own buffer, so adding a match never waits for another thread.
+    // (A map instead of a ThreadLocal, so the buffers don't stay reachable from the pool threads
+    // after the search.)
+    Map<Thread, List<Animal>> buffers = new ConcurrentHashMap<>();
+    Supplier<List<Animal>> bufferOfThread =
+        () -> buffers.computeIfAbsent(Thread.currentThread(), thread -> new ArrayList<>());
+    pool.invoke(new UnorderedTask(animals, trait, partSize(animals), bufferOfThread));
+    return concat(buffers.values());
+  }
+
+  // About four parts per thread, so a thread that is done early can help with the rest.
+  private int partSize(RangeSpliterator animals) {
+    long size = animals.estimateSize() / (pool.getParallelism() * 4L);
+    return (int) Math.max(size, MIN_PART_SIZE);
+  }
+
+  private static List<Animal> concat(Iterable<List<Animal>> buffers) {
+    int size = 0;
+    for (List<Animal> buffer : buffers) {
+      size += buffer.size();
+    }
+    List<Animal> result = new ArrayList<>(size);
+    for (List<Animal> buffer : buffers) {
+      result.addAll(buffer);
+    }
+    return result;
+  }
+
+  private static RangeSpliterator spliterator(List<? extends Animal> animals) {
+    // Only a RandomAccess list (like ArrayList) can be read at any index quickly, a LinkedList is
+    // copied once.
+    if (animals instanceof RandomAccess) {
+      return new RangeSpliterator(animals, 0, animals.size());
+    }
+    Animal[] array = animals.toArray(new Animal[0]);
+    return new RangeSpliterator(array, 0, array.length);
+  }
+
+  /**
+   * The animals from index from to (excluding) to of an array or a RandomAccess list. trySplit()
+   * hands the first half to a new spliterator, so every split halves the size exactly.
+   */
+  private static final class RangeSpliterator implements Spliterator<Animal> {
+    private final Animal[] array;
+    private final List<? extends Animal> list;
+    private int from;
+    private final int to;
+
+    private RangeSpliterator(Animal[] array, int from, int to) {
+      this.array = array;
+      this.list = null;
+      this.from = from;
+      this.to = to;
+    }
+
+    private RangeSpliterator(List<? extends Animal> list, int from, int to) {
+      this.array = null;
+      this.list = list;
+      this.from = from;
+      this.to = to;
+    }
+
+    private Animal get(int index) {
+      return array != null ? array[index] : list.get(index);
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Animal> action) {
+      if (from >= to) {
+        return false;
+      }
+      action.accept(get(from++));
+      return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super Animal> action) {
+      int i = from;
+      // Set first, so that an exception in the action doesn't let the animals be visited again.
+      from = to;
+      if (array != null) {
+        for (; i < to; i++) {
+          action.accept(array[i]);
+        }
+      } else {
+        for (; i < to; i++) {
+          action.accept(list.get(i));
+        }
+      }
+    }
+
+    // Like forEachRemaining, but without a Consumer around the trait.
+    private long countRemaining(CheckTrait trait) {
+      long count = 0;
+      for (int i = from; i < to; i++) {
+        if (trait.test(get(i))) {
+          count++;
+        }
+      }
+      from = to;
+      return count;
+    }
+
+    @Override
+    public RangeSpliterator trySplit() {
+      int middle = (from + to) >>> 1;
+      if (middle <= from) {
+        return null;
+      }
+      RangeSpliterator prefix =
+          array != null
+              ? new RangeSpliterator(array, from, middle)
+              : new RangeSpliterator(list, from, middle);
+      from = middle;
+      return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+      return to - from;
+    }
+
+    @Override
+    public int characteristics() {
+      return ORDERED | SIZED | SUBSIZED;
+    }
+  }
+
+  private static final class CountTask extends RecursiveTask<Long> {
+    private static final long serialVersionUID = 1L;
+
+    private final RangeSpliterator animals;
+    private final CheckTrait trait;
+    private final int partSize;
+
+    private CountTask(RangeSpliterator animals, CheckTrait trait, int partSize) {
+      this.animals = animals;
+      this.trait = trait;
+      this.partSize = partSize;
+    }
+
+    @Override
+    protected Long compute() {
+      RangeSpliterator prefix;
+      if (animals.estimateSize() <= partSize || (prefix = animals.trySplit()) == null) {
+        return animals.countRemaining(trait);
+      }
+      CountTask left = new CountTask(prefix, trait, partSize);
+      left.fork();
+      long right = new CountTask(animals, trait, partSize).compute();
+      return left.join() + right;
+    }
+  }
+
+  // Returns the buffers of its parts, in order.
+  private static final class OrderedTask extends RecursiveTask<List<List<Animal>>> {
+    private static final long serialVersionUID = 1L;
+
+    private final RangeSpliterator animals;
+    private final CheckTrait trait;
+    private final int partSize;
+
+    private OrderedTask(RangeSpliterator animals, CheckTrait trait, int partSize) {
+      this.animals = animals;
+      this.trait = trait;
+      this.partSize = partSize;
+    }
+
+    @Override
+    protected List<List<Animal>> compute() {
+      RangeSpliterator prefix;
+      if (animals.estimateSize() <= partSize || (prefix = animals.trySplit()) == null) {
+        List<Animal> buffer = new ArrayList<>();
+        animals.forEachRemaining(
+            animal -> {
+              if (trait.test(animal)) {
+                buffer.add(animal);
+              }
+            });
+        List<List<Animal>> parts = new ArrayList<>();
+        if (!buffer.isEmpty()) {
+          parts.add(buffer);
+        }
+        return parts;
+      }
+      OrderedTask left = new OrderedTask(prefix, trait, partSize);
+      left.fork();
+      List<List<Animal>> right = new OrderedTask(animals, trait, partSize).compute();
+      List<List<Animal>> result = left.join();
+      result.addAll(right);
+      return result;
+    }
+  }
+
+  private static final class UnorderedTask extends RecursiveTask<Void> {
+    private static final long serialVersionUID = 1L;
+
+    private final RangeSpliterator animals;
+    private final CheckTrait trait;
+    private final int partSize;
+    private final Supplier<List<Animal>> bufferOfThread;
+
+    private UnorderedTask(
+        RangeSpliterator animals,
+        CheckTrait trait,
+        int partSize,
+        Supplier<List<Animal>> bufferOfThread) {
+      this.animals = animals;
+      this.trait = trait;
+      this.partSize = partSize;
+      this.bufferOfThread = bufferOfThread;
+    }
+
+    @Override
+    protected Void compute() {
+      RangeSpliterator prefix;
+      if (animals.estimateSize() <= partSize || (prefix = animals.trySplit()) == null) {
+        // Looked up once per part, the part runs on one thread.
+        List<Animal> buffer = bufferOfThread.get();
+        animals.forEachRemaining(
+            animal -> {
+              if (trait.test(animal)) {
+                buffer.add(animal);
+              }
+            });
+        return null;
+      }
+      UnorderedTask left = new UnorderedTask(prefix, trait, partSize, bufferOfThread);
+      left.fork();
+      new UnorderedTask(animals, trait, partSize, bufferOfThread).compute();
+      left.join();
+      return null;
+    }
+  }
+}
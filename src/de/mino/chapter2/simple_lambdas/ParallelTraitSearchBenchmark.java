@@ -0,0 +1,83 @@
+package de.mino.chapter2.simple_lambdas;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Searches a large population for the animals that "can hop and cannot swim" with one loop and
+ * with a {@link ParallelTraitSearch} of 1 to N threads: counting, finding in order and finding
+ * unordered. N is the number of processors unless it is given. With more threads than processors
+ * the times don't get better anymore.
+ *
+ * <p>Usage: {@code ParallelTraitSearchBenchmark [animals] [maxThreads]}
+ */
+public class ParallelTraitSearchBenchmark {
+
+  private static final String[] SPECIES = {"kangaroo", "frog", "fish", "rabbit", "duck", "lion"};
+
+  public static void main(String[] args) {
+    int count = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+    int maxThreads =
+        args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+    Random random = new Random(42);
+    Animal[] animals = new Animal[count];
+    for (int i = 0; i < count; i++) {
+      String species = SPECIES[random.nextInt(SPECIES.length)];
+      animals[i] = new Animal(species, random.nextBoolean(), random.nextBoolean());
+    }
+    CheckTrait trait = a -> a.canHop() && !a.canSwim();
+
+    System.out.printf(
+        "%d animals, %d processors, ms%n", count, Runtime.getRuntime().availableProcessors());
+    System.out.printf("threads\tcount\tordered\tunordered%n");
+    for (int round = 0; round < 5; round++) {
+      // The first rounds are the warm-up, only the last one is printed.
+      long start = System.nanoTime();
+      countEach(animals, trait);
+      long end = System.nanoTime();
+      if (round == 4) {
+        System.out.printf("loop\t%d%n", (end - start) / 1_000_000);
+      }
+    }
+    int expected = countEach(animals, trait);
+
+    for (int threads = 1; threads <= maxThreads; threads++) {
+      try (ParallelTraitSearch search = new ParallelTraitSearch(threads)) {
+        for (int round = 0; round < 5; round++) {
+          // The lists of the last round shouldn't be collected while this one is measured.
+          System.gc();
+          long start = System.nanoTime();
+          long counted = search.count(animals, trait);
+          long afterCount = System.nanoTime();
+          List<Animal> ordered = search.findAll(animals, trait, true);
+          long afterOrdered = System.nanoTime();
+          List<Animal> unordered = search.findAll(animals, trait, false);
+          long afterUnordered = System.nanoTime();
+          if (counted != expected
+              || ordered.size() != expected
+              || unordered.size() != expected) {
+            throw new IllegalStateException("The search found different animals");
+          }
+          if (round == 4) {
+            System.out.printf(
+                "%d\t%d\t%d\t%d%n",
+                threads,
+                (afterCount - start) / 1_000_000,
+                (afterOrdered - afterCount) / 1_000_000,
+                (afterUnordered - afterOrdered) / 1_000_000);
+          }
+        }
+      }
+    }
+  }
+
+  private static int countEach(Animal[] animals, CheckTrait trait) {
+    int count = 0;
+    for (Animal animal : animals) {
+      if (trait.test(animal)) {
+        count++;
+      }
+    }
+    return count;
+  }
+}
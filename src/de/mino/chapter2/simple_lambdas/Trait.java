@@ -0,0 +1,33 @@
+package de.mino.chapter2.simple_lambdas;
+
+/**
+ * A named boolean property of an {@link Animal}. A {@link TraitStore} keeps one bitmap per trait,
+ * so queries over the trait don't have to look at the animals themselves.
+ */
+public final class Trait {
+
+  public static final Trait CAN_HOP = new Trait("canHop", Animal::canHop);
+  public static final Trait CAN_SWIM = new Trait("canSwim", Animal::canSwim);
+
+  private final String name;
+  private final CheckTrait accessor;
+
+  /** New traits can be defined with any check, e.g. {@code new Trait("isFish", a -> ...)}. */
+  public Trait(String name, CheckTrait accessor) {
+    this.name = name;
+    this.accessor = accessor;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public boolean test(Animal animal) {
+    return accessor.test(animal);
+  }
+
+  @Override
+  public String toString() {
+    return name;
+  }
+}
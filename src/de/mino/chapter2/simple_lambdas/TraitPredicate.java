@@ -0,0 +1,200 @@
+package de.mino.chapter2.simple_lambdas;
+
+import java.util.function.Predicate;
+
+/**
+ * A condition on animals that is built from {@link Trait}s with and(), or() and negate(). It can be
+ * used like any CheckTrait or Predicate, testing one animal at a time. But because the structure
+ * of the condition is known, a {@link TraitStore} can also evaluate it on its bitmaps, 64 animals
+ * per step.
+ *
+ * <p>Other lambdas can be mixed in with {@link #of(CheckTrait)}. The store doesn't know what they
+ * do, so it tests them per animal (only for the animals the rest of the condition still allows).
+ */
+public abstract class TraitPredicate implements CheckTrait, Predicate<Animal> {
+
+  private TraitPredicate() {}
+
+  /** True for the animals that have the trait. */
+  public static TraitPredicate has(Trait trait) {
+    return new Leaf(trait);
+  }
+
+  /** Wraps any check. A TraitPredicate is returned as it is. */
+  public static TraitPredicate of(CheckTrait check) {
+    return check instanceof TraitPredicate ? (TraitPredicate) check : new Opaque(check);
+  }
+
+  private static TraitPredicate wrap(Predicate<? super Animal> predicate) {
+    return predicate instanceof TraitPredicate
+        ? (TraitPredicate) predicate
+        : new Opaque(predicate::test);
+  }
+
+  @Override
+  public TraitPredicate and(Predicate<? super Animal> other) {
+    return new And(this, wrap(other));
+  }
+
+  @Override
+  public TraitPredicate or(Predicate<? super Animal> other) {
+    return new Or(this, wrap(other));
+  }
+
+  @Override
+  public TraitPredicate negate() {
+    return new Not(this);
+  }
+
+  // Declared again so that calls on a TraitPredicate aren't ambiguous between the test() of
+  // CheckTrait and the one of Predicate.
+  @Override
+  public abstract boolean test(Animal animal);
+
+  // Returns a new bitmap (the caller may change it) with a bit for every animal of the store that
+  // matches.
+  abstract long[] evaluate(TraitStore store);
+
+  private static final class Leaf extends TraitPredicate {
+    private final Trait trait;
+
+    private Leaf(Trait trait) {
+      this.trait = trait;
+    }
+
+    @Override
+    public boolean test(Animal animal) {
+      return trait.test(animal);
+    }
+
+    @Override
+    long[] evaluate(TraitStore store) {
+      long[] bitmap = store.bitmap(trait);
+      // A trait the store doesn't index is checked per animal.
+      return bitmap != null ? bitmap : store.scan(this, null);
+    }
+
+    @Override
+    public String toString() {
+      return trait.toString();
+    }
+  }
+
+  private static final class Opaque extends TraitPredicate {
+    private final CheckTrait check;
+
+    private Opaque(CheckTrait check) {
+      this.check = check;
+    }
+
+    @Override
+    public boolean test(Animal animal) {
+      return check.test(animal);
+    }
+
+    @Override
+    long[] evaluate(TraitStore store) {
+      return store.scan(check, null);
+    }
+
+    @Override
+    public String toString() {
+      return "<lambda>";
+    }
+  }
+
+  private static final class And extends TraitPredicate {
+    private final TraitPredicate left;
+    private final TraitPredicate right;
+
+    private And(TraitPredicate left, TraitPredicate right) {
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    public boolean test(Animal animal) {
+      return left.test(animal) && right.test(animal);
+    }
+
+    @Override
+    long[] evaluate(TraitStore store) {
+      // An opaque side only has to be tested for the animals the other side lets through.
+      if (right instanceof Opaque) {
+        return store.scan(right, left.evaluate(store));
+      }
+      if (left instanceof Opaque) {
+        return store.scan(left, right.evaluate(store));
+      }
+      long[] result = left.evaluate(store);
+      long[] other = right.evaluate(store);
+      for (int i = 0; i < result.length; i++) {
+        result[i] &= other[i];
+      }
+      return result;
+    }
+
+    @Override
+    public String toString() {
+      return "(" + left + " && " + right + ")";
+    }
+  }
+
+  private static final class Or extends TraitPredicate {
+    private final TraitPredicate left;
+    private final TraitPredicate right;
+
+    private Or(TraitPredicate left, TraitPredicate right) {
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    public boolean test(Animal animal) {
+      return left.test(animal) || right.test(animal);
+    }
+
+    @Override
+    long[] evaluate(TraitStore store) {
+      long[] result = left.evaluate(store);
+      long[] other = right.evaluate(store);
+      for (int i = 0; i < result.length; i++) {
+        result[i] |= other[i];
+      }
+      return result;
+    }
+
+    @Override
+    public String toString() {
+      return "(" + left + " || " + right + ")";
+    }
+  }
+
+  private static final class Not extends TraitPredicate {
+    private final TraitPredicate predicate;
+
+    private Not(TraitPredicate predicate) {
+      this.predicate = predicate;
+    }
+
+    @Override
+    public boolean test(Animal animal) {
+      return !predicate.test(animal);
+    }
+
+    @Override
+    long[] evaluate(TraitStore store) {
+      long[] result = predicate.evaluate(store);
+      for (int i = 0; i < result.length; i++) {
+        result[i] = ~result[i];
+      }
+      store.clearUnused(result);
+      return result;
+    }
+
+    @Override
+    public String toString() {
+      return "!" + predicate;
+    }
+  }
+}
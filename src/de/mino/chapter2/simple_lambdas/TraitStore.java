@@ -0,0 +1,127 @@
+package de.mino.chapter2.simple_lambdas;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Stores many animals together with one bitmap per {@link Trait}: bit i of the bitmap of canHop is
+ * set if animal i can hop. A query like "can hop and cannot swim" is then answered with a few
+ * operations on long values, each of which handles 64 animals at once, instead of calling a lambda
+ * for every animal. The query is written as a {@link TraitPredicate}.
+ *
+ * <p>The store indexes {@link Trait#CAN_HOP} and {@link Trait#CAN_SWIM}, more traits can be added
+ * with {@link #index(Trait)}. Not thread safe.
+ */
+public class TraitStore {
+
+  private Animal[] animals = new Animal[64];
+  private int size;
+  private final Map<Trait, long[]> bitmaps = new IdentityHashMap<>();
+
+  public TraitStore() {
+    bitmaps.put(Trait.CAN_HOP, new long[1]);
+    bitmaps.put(Trait.CAN_SWIM, new long[1]);
+  }
+
+  public void add(Animal animal) {
+    if (size == animals.length) {
+      animals = Arrays.copyOf(animals, size * 2);
+      for (Map.Entry<Trait, long[]> entry : bitmaps.entrySet()) {
+        entry.setValue(Arrays.copyOf(entry.getValue(), size * 2 / 64));
+      }
+    }
+    for (Map.Entry<Trait, long[]> entry : bitmaps.entrySet()) {
+      if (entry.getKey().test(animal)) {
+        entry.getValue()[size >>> 6] |= 1L << size;
+      }
+    }
+    animals[size++] = animal;
+  }
+
+  /** Builds a bitmap for the trait, so queries on it don't have to check every animal anymore. */
+  public void index(Trait trait) {
+    if (!bitmaps.containsKey(trait)) {
+      long[] bitmap = scan(trait::test, null);
+      bitmaps.put(trait, Arrays.copyOf(bitmap, animals.length / 64));
+    }
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /** Counts the matching animals without looking at them (unless the query has other lambdas). */
+  public int count(TraitPredicate query) {
+    int count = 0;
+    for (long word : query.evaluate(this)) {
+      count += Long.bitCount(word);
+    }
+    return count;
+  }
+
+  public void forEachMatch(TraitPredicate query, Consumer<? super Animal> action) {
+    long[] result = query.evaluate(this);
+    for (int i = 0; i < result.length; i++) {
+      long word = result[i];
+      // Only visits the set bits: numberOfTrailingZeros finds the next one, word & (word - 1)
+      // clears it.
+      while (word != 0) {
+        action.accept(animals[(i << 6) + Long.numberOfTrailingZeros(word)]);
+        word &= word - 1;
+      }
+    }
+  }
+
+  public List<Animal> findAll(TraitPredicate query) {
+    List<Animal> result = new ArrayList<>();
+    forEachMatch(query, result::add);
+    return result;
+  }
+
+  // A copy of the trait's bitmap with just the words for the current animals, or null if the trait
+  // isn't indexed.
+  long[] bitmap(Trait trait) {
+    long[] bitmap = bitmaps.get(trait);
+    return bitmap != null ? Arrays.copyOf(bitmap, words()) : null;
+  }
+
+  // The fallback for lambdas: tests the animals one by one. With a candidates bitmap only those
+  // animals are tested and the bits of the ones that don't match are cleared.
+  long[] scan(CheckTrait check, long[] candidates) {
+    if (candidates == null) {
+      long[] result = new long[words()];
+      for (int i = 0; i < size; i++) {
+        if (check.test(animals[i])) {
+          result[i >>> 6] |= 1L << i;
+        }
+      }
+      return result;
+    }
+    for (int i = 0; i < candidates.length; i++) {
+      long word = candidates[i];
+      while (word != 0) {
+        long lowest = word & -word;
+        if (!check.test(animals[(i << 6) + Long.numberOfTrailingZeros(word)])) {
+          candidates[i] &= ~lowest;
+        }
+        word ^= lowest;
+      }
+    }
+    return candidates;
+  }
+
+  // Clears the bits after the last animal, which a negation has set.
+  void clearUnused(long[] bitmap) {
+    if ((size & 63) != 0) {
+      bitmap[bitmap.length - 1] &= (1L << size) - 1;
+    }
+  }
+
+  private int words() {
+    return (size + 63) >>> 6;
+  }
+}
@@ -0,0 +1,73 @@
+package de.mino.chapter2.simple_lambdas;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Counts the animals that "can hop and cannot swim" in a large population: with a {@link
+ * TraitStore} against testing every animal with a CheckTrait lambda. A second query mixes in a
+ * lambda the store can't turn into bitmaps.
+ *
+ * <p>Usage: {@code TraitStoreBenchmark [animals]}
+ */
+public class TraitStoreBenchmark {
+
+  private static final String[] SPECIES = {"kangaroo", "frog", "fish", "rabbit", "duck", "lion"};
+
+  public static void main(String[] args) {
+    int count = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+    Random random = new Random(42);
+    List<Animal> animals = new ArrayList<>(count);
+    TraitStore store = new TraitStore();
+    for (int i = 0; i < count; i++) {
+      String species = SPECIES[random.nextInt(SPECIES.length)];
+      Animal animal = new Animal(species, random.nextBoolean(), random.nextBoolean());
+      animals.add(animal);
+      store.add(animal);
+    }
+
+    CheckTrait lambda = a -> a.canHop() && !a.canSwim();
+    TraitPredicate query =
+        TraitPredicate.has(Trait.CAN_HOP).and(TraitPredicate.has(Trait.CAN_SWIM).negate());
+    CheckTrait mixedLambda = a -> a.canHop() && !a.canSwim() && a.toString().startsWith("k");
+    TraitPredicate mixedQuery = query.and(a -> a.toString().startsWith("k"));
+
+    for (int round = 0; round < 5; round++) {
+      // The first rounds are the warm-up, only the last one is printed.
+      long start = System.nanoTime();
+      int lambdaCount = countEach(animals, lambda);
+      long afterLambda = System.nanoTime();
+      int storeCount = store.count(query);
+      long afterStore = System.nanoTime();
+      int mixedLambdaCount = countEach(animals, mixedLambda);
+      long afterMixedLambda = System.nanoTime();
+      int mixedStoreCount = store.count(mixedQuery);
+      long afterMixedStore = System.nanoTime();
+      if (lambdaCount != storeCount || mixedLambdaCount != mixedStoreCount) {
+        throw new IllegalStateException("The store found different animals");
+      }
+
+      if (round == 4) {
+        System.out.printf("%d animals, %d match%n", count, storeCount);
+        System.out.printf("per animal lambda\t%.2f ms%n", (afterLambda - start) / 1e6);
+        System.out.printf("TraitStore\t\t%.2f ms%n", (afterStore - afterLambda) / 1e6);
+        System.out.printf("with an opaque lambda, %d match%n", mixedStoreCount);
+        System.out.printf(
+            "per animal lambda\t%.2f ms%n", (afterMixedLambda - afterStore) / 1e6);
+        System.out.printf(
+            "TraitStore\t\t%.2f ms%n", (afterMixedStore - afterMixedLambda) / 1e6);
+      }
+    }
+  }
+
+  private static int countEach(List<Animal> animals, CheckTrait trait) {
+    int count = 0;
+    for (Animal animal : animals) {
+      if (trait.test(animal)) {
+        count++;
+      }
+    }
+    return count;
+  }
+}
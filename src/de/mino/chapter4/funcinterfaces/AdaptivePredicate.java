@@ -0,0 +1,228 @@
+package de.mino.chapter4.funcinterfaces;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Combines predicates with AND ({@link #allOf}) or OR ({@link #anyOf}) like {@code
+ * egg.and(brown.negate())}, but doesn't always evaluate them in the order they were written.
+ *
+ * <p>Every 256th call all clauses are evaluated and timed, which gives the cost and the pass rate of
+ * each clause. From time to time the clauses are reordered, so that the ones that decide the
+ * result cheaply come first:
+ *
+ * <ul>
+ *   <li>AND stops at the first false. The best order is ascending cost / (1 - pass rate): cheap
+ *       clauses that reject a lot first.
+ *   <li>OR stops at the first true. The best order is ascending cost / pass rate: cheap clauses
+ *       that accept a lot first.
+ * </ul>
+ *
+ * <p>The result is the same in every order, as long as the clauses have no side effects and don't
+ * rely on each other (like a null check followed by a method call on the same value). Such
+ * clauses have to be combined into one clause first.
+ */
+public class AdaptivePredicate<T> implements Predicate<T> {
+
+    // Must be a power of two.
+    private static final int SAMPLE_EVERY = 256;
+    private static final int REORDER_AFTER_SAMPLES = 64;
+
+    private final boolean all;
+    private final List<Predicate<? super T>> clauses;
+    // Written only while holding the lock, read without.
+    private volatile Predicate<? super T>[] ordered;
+    private volatile int[] order;
+    // Only counts the calls to decide when to sample. Lost updates from other threads don't matter.
+    private int calls;
+
+    // Guarded by this. Older samples count less: the values are halved at every reordering.
+    private final double[] nanos;
+    private final double[] passes;
+    private double samples;
+    private long reorderings;
+
+    private AdaptivePredicate(boolean all, List<? extends Predicate<? super T>> clauses) {
+        if (clauses.isEmpty()) {
+            throw new IllegalArgumentException("At least one clause is required");
+        }
+        this.all = all;
+        this.clauses = Collections.unmodifiableList(new ArrayList<>(clauses));
+        this.nanos = new double[clauses.size()];
+        this.passes = new double[clauses.size()];
+        int[] initial = new int[clauses.size()];
+        Arrays.setAll(initial, i -> i);
+        applyOrder(initial);
+    }
+
+    /** True if all clauses are true. */
+    public static <T> AdaptivePredicate<T> allOf(List<? extends Predicate<? super T>> clauses) {
+        return new AdaptivePredicate<>(true, clauses);
+    }
+
+    @SafeVarargs
+    public static <T> AdaptivePredicate<T> allOf(Predicate<? super T>... clauses) {
+        // Copied one by one: handing the generic varargs array itself to another method (e.g.
+        // Arrays.asList) lets it escape, which -Xlint warns about.
+        List<Predicate<? super T>> list = new ArrayList<>(clauses.length);
+        for (Predicate<? super T> clause : clauses) {
+            list.add(clause);
+        }
+        return allOf(list);
+    }
+
+    /** True if at least one clause is true. */
+    public static <T> AdaptivePredicate<T> anyOf(List<? extends Predicate<? super T>> clauses) {
+        return new AdaptivePredicate<>(false, clauses);
+    }
+
+    @SafeVarargs
+    public static <T> AdaptivePredicate<T> anyOf(Predicate<? super T>... clauses) {
+        List<Predicate<? super T>> list = new ArrayList<>(clauses.length);
+        for (Predicate<? super T> clause : clauses) {
+            list.add(clause);
+        }
+        return anyOf(list);
+    }
+
+    @Override
+    public boolean test(T value) {
+        if ((++calls & (SAMPLE_EVERY - 1)) == 0) {
+            return sample(value);
+        }
+        if (all) {
+            for (Predicate<? super T> clause : ordered) {
+                if (!clause.test(value)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        for (Predicate<? super T> clause : ordered) {
+            if (clause.test(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Evaluates and times every clause (no short circuit).
+    private synchronized boolean sample(T value) {
+        boolean result = all;
+        for (int i = 0; i < clauses.size(); i++) {
+            long start = System.nanoTime();
+            boolean passed = clauses.get(i).test(value);
+            nanos[i] += System.nanoTime() - start;
+            if (passed) {
+                passes[i]++;
+            }
+            result = all ? result && passed : result || passed;
+        }
+        samples++;
+        if (samples >= REORDER_AFTER_SAMPLES) {
+            reorder();
+        }
+        return result;
+    }
+
+    private void reorder() {
+        double[] ranks = new double[clauses.size()];
+        for (int i = 0; i < ranks.length; i++) {
+            double cost = nanos[i] / samples;
+            // Never exactly 0 or 1, otherwise one sample decides the order forever.
+            double passRate = (passes[i] + 1) / (samples + 2);
+            ranks[i] = all ? cost / (1 - passRate) : cost / passRate;
+            nanos[i] /= 2;
+            passes[i] /= 2;
+        }
+        samples /= 2;
+        reorderings++;
+        Integer[] byRank = new Integer[ranks.length];
+        Arrays.setAll(byRank, i -> i);
+        Arrays.sort(byRank, Comparator.comparingDouble(i -> ranks[i]));
+        int[] newOrder = new int[byRank.length];
+        Arrays.setAll(newOrder, i -> byRank[i]);
+        applyOrder(newOrder);
+    }
+
+    private void applyOrder(int[] newOrder) {
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Predicate<? super T>[] newOrdered = new Predicate[newOrder.length];
+        for (int i = 0; i < newOrder.length; i++) {
+            newOrdered[i] = clauses.get(newOrder[i]);
+        }
+        order = newOrder;
+        ordered = newOrdered;
+    }
+
+    /** The clauses as indexes into the list they were created with, in the current order. */
+    public List<Integer> getOrder() {
+        List<Integer> result = new ArrayList<>();
+        for (int index : order) {
+            result.add(index);
+        }
+        return result;
+    }
+
+    /** How often the clauses were reordered so far. */
+    public synchronized long getReorderings() {
+        return reorderings;
+    }
+
+    /** The measured cost and pass rate of every clause, in the order the clauses were created. */
+    public synchronized List<ClauseStatistics> getStatistics() {
+        List<ClauseStatistics> result = new ArrayList<>();
+        for (int i = 0; i < clauses.size(); i++) {
+            result.add(
+                    new ClauseStatistics(
+                            i,
+                            samples == 0 ? 0 : nanos[i] / samples,
+                            samples == 0 ? 0 : passes[i] / samples));
+        }
+        return result;
+    }
+
+    public static final class ClauseStatistics {
+        private final int index;
+        private final double nanosPerTest;
+        private final double passRate;
+
+        private ClauseStatistics(int index, double nanosPerTest, double passRate) {
+            this.index = index;
+            this.nanosPerTest = nanosPerTest;
+            this.passRate = passRate;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public double getNanosPerTest() {
+            return nanosPerTest;
+        }
+
+        // Between 0 (never true) and 1 (always true).
+        public double getPassRate() {
+            return passRate;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "clause %d: %.1f ns, %.1f%% true", index, nanosPerTest, passRate * 100);
+        }
+    }
+
+    public static void main(String[] args) {
+        Predicate<String> egg = s -> s.contains("egg");
+        Predicate<String> brown = s -> s.contains("brown");
+        AdaptivePredicate<String> otherEggs = AdaptivePredicate.allOf(egg, brown.negate());
+        System.out.println(otherEggs.test("i have brown eggs so this is false"));
+        System.out.println(otherEggs.test("i have other eggs so this is true"));
+        System.out.println(otherEggs.getOrder()); // [0, 1] until enough samples were taken
+    }
+}
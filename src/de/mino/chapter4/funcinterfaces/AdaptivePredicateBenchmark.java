@@ -0,0 +1,99 @@
+package de.mino.chapter4.funcinterfaces;
+
+import java.util.Random;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Filters skewed data with AND and OR chains that were written in a bad order (the expensive clause
+ * first, the cheap and decisive one last): with the default and()/or() of Predicate, with {@link
+ * AdaptivePredicate} and with the chain in the best order written by hand.
+ *
+ * <p>Usage: {@code AdaptivePredicateBenchmark [lines]}
+ */
+public class AdaptivePredicateBenchmark {
+
+    private static final Pattern EGGS = Pattern.compile(".*\\beggs?\\b.*");
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        // Skewed: almost every line mentions eggs, only 2% are about brown ones.
+        String[] lines = new String[count];
+        Random random = new Random(42);
+        for (int i = 0; i < count; i++) {
+            int kind = random.nextInt(100);
+            if (kind < 2) {
+                lines[i] = "brown eggs from farm " + i;
+            } else if (kind < 90) {
+                lines[i] = "i have other eggs, number " + i;
+            } else {
+                lines[i] = "just some chicken " + i;
+            }
+        }
+
+        // AND: the regex almost always passes, "brown" almost always fails.
+        Predicate<String> regex = s -> EGGS.matcher(s).matches();
+        Predicate<String> egg = s -> s.contains("egg");
+        Predicate<String> brown = s -> s.startsWith("brown");
+        Predicate<String> writtenAnd = regex.and(egg).and(brown);
+        Predicate<String> bestAnd = brown.and(egg).and(regex);
+        AdaptivePredicate<String> adaptiveAnd = AdaptivePredicate.allOf(regex, egg, brown);
+
+        // OR: the regex for chicken rarely passes, the cheap check almost always does.
+        Predicate<String> chicken = s -> s.matches(".*\\bchickens?\\b.*");
+        Predicate<String> other = s -> s.charAt(2) == 'h';
+        Predicate<String> writtenOr = chicken.or(brown).or(other);
+        Predicate<String> bestOr = other.or(brown).or(chicken);
+        AdaptivePredicate<String> adaptiveOr = AdaptivePredicate.anyOf(chicken, brown, other);
+
+        for (int round = 0; round < 5; round++) {
+            // The first rounds are the warm-up, only the last one is printed.
+            boolean print = round == 4;
+            if (print) {
+                System.out.printf("%d lines, ms%n", count);
+                System.out.printf("\t\twritten order\tAdaptivePredicate\tbest order%n");
+            }
+            run("AND", lines, writtenAnd, adaptiveAnd, bestAnd, print);
+            run("OR", lines, writtenOr, adaptiveOr, bestOr, print);
+        }
+        System.out.println("AND order " + adaptiveAnd.getOrder() + " " + adaptiveAnd.getStatistics());
+        System.out.println("OR order " + adaptiveOr.getOrder() + " " + adaptiveOr.getStatistics());
+    }
+
+    private static void run(
+            String name,
+            String[] lines,
+            Predicate<String> written,
+            Predicate<String> adaptive,
+            Predicate<String> best,
+            boolean print) {
+        long start = System.nanoTime();
+        int writtenCount = count(lines, written);
+        long afterWritten = System.nanoTime();
+        int adaptiveCount = count(lines, adaptive);
+        long afterAdaptive = System.nanoTime();
+        int bestCount = count(lines, best);
+        long afterBest = System.nanoTime();
+        if (writtenCount != adaptiveCount || adaptiveCount != bestCount) {
+            throw new IllegalStateException(name + " chains found different lines");
+        }
+        if (print) {
+            System.out.printf(
+                    "%s\t\t%d\t\t%d\t\t\t%d%n",
+                    name,
+                    (afterWritten - start) / 1_000_000,
+                    (afterAdaptive - afterWritten) / 1_000_000,
+                    (afterBest - afterAdaptive) / 1_000_000);
+        }
+    }
+
+    private static int count(String[] lines, Predicate<String> predicate) {
+        int count = 0;
+        for (String line : lines) {
+            if (predicate.test(line)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}